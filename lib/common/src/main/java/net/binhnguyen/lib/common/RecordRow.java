@@ -0,0 +1,84 @@
+package net.binhnguyen.lib.common;
+
+import java.util.*;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Read-through {@link Map} view of one {@link RecordSet} row. Lookups go through the shared {@link RecordSchema},
+ *        nothing is copied. Values of existing columns can be replaced, adding keys requires {@link #toRecord()}.
+ */
+public class RecordRow extends AbstractMap<String, Object> {
+
+  private final RecordSchema  schema;
+  private final Object[]      values;
+
+  public RecordRow(RecordSchema schema, Object[] values) {
+    this.schema = schema;
+    this.values = values;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String)) return null;
+    int column = schema.indexOf((String) key);
+    return column < 0 ? null : values[column];
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && schema.indexOf((String) key) >= 0;
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int column = schema.indexOf(key);
+    if (column < 0) throw new UnsupportedOperationException("Column " + key + " is not part of this result, use toRecord()");
+    Object previous = values[column];
+    values[column] = value;
+    return previous;
+  }
+
+  @Override
+  public int size() {
+    return schema.getKeyPositions().length;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        final int[] positions = schema.getKeyPositions();
+        return new Iterator<>() {
+          private int cursor = 0;
+
+          @Override
+          public boolean hasNext() {
+            return cursor < positions.length;
+          }
+
+          @Override
+          public Entry<String, Object> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int column = positions[cursor++];
+            return new SimpleImmutableEntry<>(schema.getColumnNames()[column], values[column]);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return RecordRow.this.size();
+      }
+    };
+  }
+
+  public Object[] getValues() {
+    return values;
+  }
+
+  public Record toRecord() {
+    return schema.toRecord(values);
+  }
+}
@@ -0,0 +1,138 @@
+package net.binhnguyen.lib.common;
+
+import lombok.Getter;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Column layout of a query result, computed once per {@link ResultSet}. <br/>
+ *        Holds the column names, a name -> position index and an extraction plan (one typed reader per column),
+ *        so reading a row is a flat loop without any metadata lookups. <br/>
+ *        Readers return the same Java types as {@link ResultSet#getObject(int)} does with the Postgres driver.
+ */
+@Getter
+public class RecordSchema {
+
+  public static final RecordSchema EMPTY = new RecordSchema(new String[0], new ColumnReader[0]);
+
+  private final String[]              columnNames;
+  private final ColumnReader[]        readers;
+  /** Column name -> position in a row. Duplicated names point to the last one, like {@link Record#put} would */
+  private final Map<String, Integer>  columnIndex;
+  /** Position of each distinct key, ordered by first appearance */
+  private final int[]                 keyPositions;
+
+  private RecordSchema(String[] columnNames, ColumnReader[] readers) {
+    this.columnNames = columnNames;
+    this.readers     = readers;
+
+    Map<String, Integer> index = new LinkedHashMap<>();
+    for (int i = 0; i < columnNames.length; i++) {
+      index.put(columnNames[i], i);
+    }
+    this.columnIndex  = Collections.unmodifiableMap(index);
+    this.keyPositions = index.values().stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  public static RecordSchema of(ResultSetMetaData metaData) throws SQLException {
+    final int columnCount = metaData.getColumnCount();
+    String[] names = new String[columnCount];
+    ColumnReader[] readers = new ColumnReader[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      names[i] = metaData.getColumnName(i + 1);
+      readers[i] = readerFor(metaData.getColumnType(i + 1), metaData.getColumnTypeName(i + 1));
+    }
+    return new RecordSchema(names, readers);
+  }
+
+  public int getColumnCount() {
+    return columnNames.length;
+  }
+
+  /** @return Position of the column, or -1 if the result has no such column */
+  public int indexOf(String columnName) {
+    Integer idx = columnIndex.get(columnName);
+    return Objects.isNull(idx) ? -1 : idx;
+  }
+
+  /** Read the current row of {@code resultSet} into a flat array */
+  public Object[] readRow(ResultSet resultSet) throws SQLException {
+    Object[] values = new Object[readers.length];
+    for (int i = 0; i < readers.length; i++) {
+      values[i] = readers[i].read(resultSet, i + 1);
+    }
+    return values;
+  }
+
+  /** Read the current row of {@code resultSet} straight into a {@link Record}, without a flat array in between */
+  public Record readRecord(ResultSet resultSet) throws SQLException {
+    Record record = new Record();
+    for (int i = 0; i < readers.length; i++) {
+      record.put(columnNames[i], readers[i].read(resultSet, i + 1));
+    }
+    return record;
+  }
+
+  public Record toRecord(Object[] values) {
+    Record record = new Record();
+    for (int i = 0; i < columnNames.length; i++) {
+      record.put(columnNames[i], values[i]);
+    }
+    return record;
+  }
+
+  @FunctionalInterface
+  public interface ColumnReader {
+    Object read(ResultSet resultSet, int column) throws SQLException;
+  }
+
+  private static ColumnReader readerFor(int sqlType, String typeName) {
+    switch (sqlType) {
+      case Types.BIGINT: return (rs, col) -> {
+        long value = rs.getLong(col);
+        return rs.wasNull() ? null : value;
+      };
+      case Types.INTEGER:
+      case Types.SMALLINT:
+      case Types.TINYINT: return (rs, col) -> {
+        int value = rs.getInt(col);
+        return rs.wasNull() ? null : value;
+      };
+      case Types.DOUBLE:
+      case Types.FLOAT: return (rs, col) -> {
+        double value = rs.getDouble(col);
+        return rs.wasNull() ? null : value;
+      };
+      case Types.REAL: return (rs, col) -> {
+        float value = rs.getFloat(col);
+        return rs.wasNull() ? null : value;
+      };
+      case Types.BOOLEAN: return (rs, col) -> {
+        boolean value = rs.getBoolean(col);
+        return rs.wasNull() ? null : value;
+      };
+      case Types.BIT:
+        if ("bool".equals(typeName)) return (rs, col) -> {
+          boolean value = rs.getBoolean(col);
+          return rs.wasNull() ? null : value;
+        };
+        return ResultSet::getObject;
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR: return ResultSet::getString;
+      case Types.NUMERIC:
+      case Types.DECIMAL: return ResultSet::getBigDecimal;
+      case Types.TIMESTAMP: return ResultSet::getTimestamp;
+      case Types.DATE: return ResultSet::getDate;
+      default: return ResultSet::getObject;
+    }
+  }
+}
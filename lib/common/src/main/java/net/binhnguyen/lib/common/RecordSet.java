@@ -0,0 +1,65 @@
+package net.binhnguyen.lib.common;
+
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Compact query result. The {@link RecordSchema} is shared by every row and each row is a flat {@code Object[]},
+ *        instead of one {@link Record} (a {@link LinkedHashMap}) per row repeating the column names. <br/>
+ *        It is a {@code List<RecordRow>}: {@link #get(int)} returns a map view over the row without copying,
+ *        use {@link #toRecords()} where a {@code List<Record>} is required.
+ */
+@Getter
+public class RecordSet extends AbstractList<RecordRow> implements RandomAccess {
+
+  private final RecordSchema    schema;
+  private final List<Object[]>  rows;
+
+  public RecordSet(RecordSchema schema) {
+    this(schema, new ArrayList<>());
+  }
+
+  public RecordSet(RecordSchema schema, List<Object[]> rows) {
+    this.schema = schema;
+    this.rows   = rows;
+  }
+
+  public void addRow(Object[] values) {
+    rows.add(values);
+  }
+
+  @Override
+  public RecordRow get(int index) {
+    return new RecordRow(schema, rows.get(index));
+  }
+
+  @Override
+  public int size() {
+    return rows.size();
+  }
+
+  public List<String> getColumnNames() {
+    return Arrays.asList(schema.getColumnNames());
+  }
+
+  public Object getValue(int row, String columnName) {
+    int column = schema.indexOf(columnName);
+    if (column < 0) return null;
+    return rows.get(row)[column];
+  }
+
+  public Object getValue(int row, int column) {
+    return rows.get(row)[column];
+  }
+
+  public List<Record> toRecords() {
+    List<Record> records = new ArrayList<>(rows.size());
+    for (Object[] values : rows) {
+      records.add(schema.toRecord(values));
+    }
+    return records;
+  }
+}
@@ -0,0 +1,130 @@
+package net.binhnguyen.lib.sql;
+
+import net.binhnguyen.lib.utils.DataSerializer;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Encode / decode rows in the CSV dialect of Postgres `COPY ... WITH (FORMAT csv)`. <br/>
+ *        NULL is an empty unquoted field, every String is quoted so an empty String stays an empty String. <br/>
+ *        Collections and arrays become array literals (`{"a","b"}`), maps become JSON, byte[] becomes `\x` hex.
+ */
+public class CopyCsvCodec {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private CopyCsvCodec() {}
+
+  /** Append one CSV line (with its trailing newline) */
+  public static void appendRow(StringBuilder line, Object[] values) {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) line.append(',');
+      appendField(line, values[i]);
+    }
+    line.append('\n');
+  }
+
+  private static void appendField(StringBuilder line, Object value) {
+    switch (value) {
+      case null -> { /* NULL */ }
+      case String str -> appendQuoted(line, str);
+      case BigDecimal num -> line.append(num.toPlainString());
+      case Number num -> line.append(num);
+      case Boolean bool -> line.append(bool ? 't' : 'f');
+      case Enum<?> enumValue -> appendQuoted(line, enumValue.name());
+      case byte[] bytes -> line.append(toHex(bytes));
+      case Timestamp timestamp -> line.append(timestamp);
+      case java.sql.Date date -> line.append(date);
+      case java.util.Date date -> line.append(new Timestamp(date.getTime()));
+      case ZonedDateTime zoned -> line.append(zoned.toOffsetDateTime());
+      case Collection<?> collection -> appendQuoted(line, toArrayLiteral(collection));
+      case Object[] objects -> appendQuoted(line, toArrayLiteral(Arrays.asList(objects)));
+      case Map<?, ?> map -> appendQuoted(line, DataSerializer.JSON.toString(map));
+      default -> appendQuoted(line, value.toString()); // java.time, UUID, ... have a literal Postgres accepts
+    }
+  }
+
+  private static void appendQuoted(StringBuilder line, String value) {
+    line.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') line.append('"');
+      line.append(c);
+    }
+    line.append('"');
+  }
+
+  /** Array literal `{"a",NULL,"b"}`, also sent by {@link SqlTemplate} for large `IN` lists */
+  static String toArrayLiteral(Collection<?> items) {
+    StringJoiner joiner = new StringJoiner(",", "{", "}");
+    for (Object item : items) {
+      if (Objects.isNull(item)) {
+        joiner.add("NULL");
+        continue;
+      }
+      String text = item instanceof Enum<?> enumValue ? enumValue.name() : item.toString();
+      joiner.add('"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"');
+    }
+    return joiner.toString();
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(2 + bytes.length * 2).append("\\x");
+    for (byte b : bytes) {
+      hex.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+    return hex.toString();
+  }
+
+  /**
+   * Parse one CSV row as sent by `COPY ... TO STDOUT WITH (FORMAT csv)`.
+   * @return Field values, null for NULL fields (empty and unquoted)
+   */
+  public static List<String> parseRow(String line) {
+    List<String> fields = new ArrayList<>();
+    int length = line.length();
+    while (length > 0 && (line.charAt(length - 1) == '\n' || line.charAt(length - 1) == '\r')) length--;
+
+    int i = 0;
+    while (true) {
+      if (i < length && line.charAt(i) == '"') {
+        StringBuilder field = new StringBuilder();
+        i++;
+        while (i < length) {
+          char c = line.charAt(i);
+          if (c == '"') {
+            if (i + 1 < length && line.charAt(i + 1) == '"') {
+              field.append('"');
+              i += 2;
+            } else {
+              i++;
+              break;
+            }
+          } else {
+            field.append(c);
+            i++;
+          }
+        }
+        fields.add(field.toString());
+      } else {
+        int end = line.indexOf(',', i);
+        if (end < 0 || end > length) end = length;
+        fields.add(end == i ? null : line.substring(i, end));
+        i = end;
+      }
+
+      if (i >= length) break;
+      i++; // Skip the comma
+      if (i == length) {
+        fields.add(null);
+        break;
+      }
+    }
+    return fields;
+  }
+}
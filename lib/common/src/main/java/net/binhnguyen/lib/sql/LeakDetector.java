@@ -0,0 +1,84 @@
+package net.binhnguyen.lib.sql;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Report JDBC resources that become unreachable without being closed (cursors, connection leases). <br/>
+ *        The owner registers itself with the resource to release, and calls {@link Tracked#close()} when it closes normally.
+ *        If the owner is garbage collected first, the leak is logged (with where it was opened when
+ *        {@link #setCaptureStackTrace(boolean)} is on) and the resource is closed.
+ */
+@Slf4j
+public class LeakDetector {
+
+  private static final Cleaner    CLEANER   = Cleaner.create();
+  private static final AtomicLong LEAKS     = new AtomicLong();
+
+  private static volatile boolean captureStackTrace = false;
+
+  public static void setCaptureStackTrace(boolean capture) {
+    captureStackTrace = capture;
+  }
+
+  public static long getDetectedLeaks() {
+    return LEAKS.get();
+  }
+
+  /**
+   * @param owner The object handed to the caller. Must not be referenced by {@code resource}
+   * @param description What leaked, e.g. the SQL of a cursor
+   * @param resource What to close if the owner leaks
+   */
+  public static Tracked track(Object owner, String description, AutoCloseable resource) {
+    State state = new State(description, resource, captureStackTrace ? new Throwable("Opened here") : null);
+    return new Tracked(state, CLEANER.register(owner, state));
+  }
+
+  public static class Tracked {
+    private final State             state;
+    private final Cleaner.Cleanable cleanable;
+
+    private Tracked(State state, Cleaner.Cleanable cleanable) {
+      this.state     = state;
+      this.cleanable = cleanable;
+    }
+
+    /** The owner was closed properly. Does not close the resource */
+    public void close() {
+      state.closed.set(true);
+      cleanable.clean();
+    }
+  }
+
+  private static class State implements Runnable {
+    private final String        description;
+    private final AutoCloseable resource;
+    private final Throwable     openedAt;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private State(String description, AutoCloseable resource, Throwable openedAt) {
+      this.description = description;
+      this.resource    = resource;
+      this.openedAt    = openedAt;
+    }
+
+    @Override
+    public void run() {
+      if (closed.getAndSet(true)) return;
+      LEAKS.incrementAndGet();
+      if (openedAt != null) log.warn("Resource was never closed: {}", description, openedAt);
+      else log.warn("Resource was never closed: {}", description);
+      try {
+        resource.close();
+      } catch (Exception e) {
+        log.error("Can't Close leaked resource", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package net.binhnguyen.lib.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.common.RecordSchema;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Forward-only iterator over an open {@link ResultSet}. Rows are read lazily, so with a fetch size
+ *        the driver only holds one fetch window in memory. <br/>
+ *        Always close it (try-with-resources, or {@link Stream#close()} on {@link #stream()}),
+ *        closing releases both the {@link ResultSet} and its {@link Statement}.
+ */
+@Slf4j
+public class RecordCursor implements Iterator<Record>, AutoCloseable {
+
+  private final Statement    statement;
+  private final ResultSet    resultSet;
+  private final RecordSchema schema;
+
+  private boolean fetched;
+  private boolean hasNext;
+  private boolean closed;
+
+  private final LeakDetector.Tracked leakTracker;
+
+  public RecordCursor(Statement statement, ResultSet resultSet) throws SQLException {
+    this(statement, resultSet, "Cursor");
+  }
+
+  /** @param description Reported if the cursor is garbage collected without being closed, usually the SQL */
+  public RecordCursor(Statement statement, ResultSet resultSet, String description) throws SQLException {
+    this.statement = statement;
+    this.resultSet = resultSet;
+    this.schema    = RecordSchema.of(resultSet.getMetaData());
+    this.leakTracker = LeakDetector.track(this, description, () -> {
+      try (statement; resultSet) {
+        log.debug("Release leaked cursor");
+      }
+    });
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) return false;
+    if (!fetched) {
+      try {
+        hasNext = resultSet.next();
+        fetched = true;
+      } catch (SQLException e) {
+        close();
+        log.error("Can't Fetch Next Row", e);
+        throw new SqlExecutionException(e);
+      }
+      if (!hasNext) close();
+    }
+    return hasNext;
+  }
+
+  @Override
+  public Record next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    fetched = false;
+    try {
+      return schema.readRecord(resultSet);
+    } catch (SQLException e) {
+      close();
+      log.error("Can't Read Row", e);
+      throw new SqlExecutionException(e);
+    }
+  }
+
+  /** @return A sequential stream over the remaining rows. Closing the stream closes this cursor */
+  public Stream<Record> stream() {
+    Spliterator<Record> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(this::close);
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public void close() {
+    if (closed) return;
+    closed = true;
+    leakTracker.close();
+    try (statement; resultSet) {
+      log.debug("Close cursor with {} columns", schema.getColumnCount());
+    } catch (SQLException e) {
+      log.error("Can't Close cursor", e);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package net.binhnguyen.lib.sql;
+
+import lombok.Getter;
+
+import java.sql.SQLException;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage The RuntimeException {@link net.binhnguyen.lib.utils.DBConnectUtils} throws when a statement fails.
+ *        Same message as before, but the SQLState survives so callers can tell a deadlock (40P01) or a serialization
+ *        failure (40001) from a real error and retry.
+ */
+@Getter
+public class SqlExecutionException extends RuntimeException {
+
+  public static final String DEADLOCK_DETECTED     = "40P01";
+  public static final String SERIALIZATION_FAILURE = "40001";
+
+  private final String sqlState;
+
+  public SqlExecutionException(SQLException cause) {
+    super(cause.getMessage(), cause);
+    this.sqlState = cause.getSQLState();
+  }
+
+  /** @return True if running the transaction again may succeed */
+  public boolean isRetryable() {
+    return DEADLOCK_DETECTED.equals(sqlState) || SERIALIZATION_FAILURE.equals(sqlState);
+  }
+
+  public static boolean isRetryable(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SqlExecutionException sqlError && sqlError.isRetryable()) return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,221 @@
+package net.binhnguyen.lib.sql;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Process-wide SQL execution metrics, recorded by {@link net.binhnguyen.lib.utils.DBConnectUtils}. <br/>
+ *        Per template: executions, errors, rows, total / max latency and a latency histogram with power-of-two
+ *        millisecond buckets (< 1ms, < 2ms, < 4ms ... >= 32s). <br/>
+ *        Executions slower than {@link #setSlowQueryThresholdMillis(long)} are sampled ({@link #setSlowQuerySampleRate(double)})
+ *        into a bounded slow query log. Parameters are only rendered for those, the fast path only updates counters.
+ */
+@Slf4j
+public class SqlMetrics {
+
+  public static final int     BUCKETS             = 17;
+  public static final int     MAX_TEMPLATES       = 1000;
+  public static final String  OTHER_TEMPLATES     = "<other>";
+
+  private static final SqlMetrics INSTANCE = new SqlMetrics();
+
+  private final Map<String, TemplateMetrics>  templates = new ConcurrentHashMap<>();
+  private final Deque<SlowQuery>              slowQueries = new ArrayDeque<>();
+
+  private volatile boolean  enabled = true;
+  private volatile long     slowQueryThresholdNanos = 500_000_000L;
+  private volatile double   slowQuerySampleRate = 1.0;
+  private volatile int      slowQueryLogSize = 200;
+
+  public static SqlMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setSlowQueryThresholdMillis(long thresholdMillis) {
+    this.slowQueryThresholdNanos = thresholdMillis * 1_000_000L;
+  }
+
+  /** @param sampleRate Fraction of the slow executions kept in the slow query log, 0 to 1 */
+  public void setSlowQuerySampleRate(double sampleRate) {
+    this.slowQuerySampleRate = Math.max(0, Math.min(1, sampleRate));
+  }
+
+  public void setSlowQueryLogSize(int size) {
+    this.slowQueryLogSize = size;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param template The SQL template, so executions with different values share their metrics
+   * @param params Only read when the execution ends in the slow query log
+   */
+  public void record(String template, long elapsedNanos, long rows, boolean failed, Record params) {
+    if (!enabled) return;
+    TemplateMetrics metrics = templates.get(template);
+    if (Objects.isNull(metrics)) {
+      String key = templates.size() < MAX_TEMPLATES ? template : OTHER_TEMPLATES;
+      metrics = templates.computeIfAbsent(key, TemplateMetrics::new);
+    }
+    metrics.record(elapsedNanos, rows, failed);
+
+    if (elapsedNanos >= slowQueryThresholdNanos && ThreadLocalRandom.current().nextDouble() < slowQuerySampleRate) {
+      SlowQuery slowQuery = new SlowQuery(template, String.valueOf(params), elapsedNanos / 1_000_000L, rows, failed, System.currentTimeMillis());
+      log.warn("Slow query {}ms, {} rows: \n{}", slowQuery.getElapsedMillis(), rows, template);
+      synchronized (slowQueries) {
+        slowQueries.addLast(slowQuery);
+        while (slowQueries.size() > slowQueryLogSize) slowQueries.removeFirst();
+      }
+    }
+  }
+
+  /** @return A snapshot of every template, slowest total time first */
+  public List<TemplateSnapshot> getTemplateMetrics() {
+    List<TemplateSnapshot> snapshots = new ArrayList<>(templates.size());
+    for (TemplateMetrics metrics : templates.values()) {
+      snapshots.add(metrics.snapshot());
+    }
+    snapshots.sort((left, right) -> Long.compare(right.totalMillis, left.totalMillis));
+    return snapshots;
+  }
+
+  public TemplateSnapshot getTemplateMetrics(String template) {
+    TemplateMetrics metrics = templates.get(template);
+    return Objects.isNull(metrics) ? null : metrics.snapshot();
+  }
+
+  /** @return Sampled slow executions, most recent last */
+  public List<SlowQuery> getSlowQueries() {
+    synchronized (slowQueries) {
+      return new ArrayList<>(slowQueries);
+    }
+  }
+
+  public void reset() {
+    templates.clear();
+    synchronized (slowQueries) {
+      slowQueries.clear();
+    }
+  }
+
+  /** @return Histogram bucket of a latency: 0 is < 1ms, n is < 2^n ms, the last one is everything above */
+  static int bucketOf(long elapsedNanos) {
+    long millis = elapsedNanos / 1_000_000L;
+    if (millis <= 0) return 0;
+    int bucket = 64 - Long.numberOfLeadingZeros(millis);
+    return Math.min(bucket, BUCKETS - 1);
+  }
+
+  private static class TemplateMetrics {
+    private final String          template;
+    private final LongAdder       executions  = new LongAdder();
+    private final LongAdder       errors      = new LongAdder();
+    private final LongAdder       rows        = new LongAdder();
+    private final LongAdder       totalNanos  = new LongAdder();
+    private final AtomicLong      maxNanos    = new AtomicLong();
+    private final AtomicLongArray histogram   = new AtomicLongArray(BUCKETS);
+
+    private TemplateMetrics(String template) {
+      this.template = template;
+    }
+
+    private void record(long elapsedNanos, long rowCount, boolean failed) {
+      executions.increment();
+      if (failed) errors.increment();
+      if (rowCount > 0) rows.add(rowCount);
+      totalNanos.add(elapsedNanos);
+      maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+      histogram.incrementAndGet(bucketOf(elapsedNanos));
+    }
+
+    private TemplateSnapshot snapshot() {
+      long[] buckets = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = histogram.get(i);
+      }
+      return new TemplateSnapshot(
+        template, executions.sum(), errors.sum(), rows.sum(), totalNanos.sum() / 1_000_000L, maxNanos.get() / 1_000_000L, buckets
+      );
+    }
+  }
+
+  @Getter
+  public static class TemplateSnapshot {
+    private final String  template;
+    private final long    executions;
+    private final long    errors;
+    private final long    rows;
+    private final long    totalMillis;
+    private final long    maxMillis;
+    /** Execution count per latency bucket, see {@link SqlMetrics#bucketOf(long)} */
+    private final long[]  histogram;
+
+    public TemplateSnapshot(String template, long executions, long errors, long rows, long totalMillis, long maxMillis, long[] histogram) {
+      this.template    = template;
+      this.executions  = executions;
+      this.errors      = errors;
+      this.rows        = rows;
+      this.totalMillis = totalMillis;
+      this.maxMillis   = maxMillis;
+      this.histogram   = histogram;
+    }
+
+    public double getAverageMillis() {
+      return executions == 0 ? 0 : (double) totalMillis / executions;
+    }
+
+    /** @return Upper bound (ms) of the bucket holding the given percentile, e.g. 0.99 */
+    public long getPercentileMillis(double percentile) {
+      long target = (long) Math.ceil(executions * percentile);
+      long seen = 0;
+      for (int i = 0; i < histogram.length; i++) {
+        seen += histogram[i];
+        if (seen >= target && seen > 0) return i == histogram.length - 1 ? maxMillis : 1L << i;
+      }
+      return maxMillis;
+    }
+
+    public long getP50Millis() {
+      return getPercentileMillis(0.5);
+    }
+
+    public long getP99Millis() {
+      return getPercentileMillis(0.99);
+    }
+  }
+
+  @Getter
+  public static class SlowQuery {
+    private final String  template;
+    private final String  params;
+    private final long    elapsedMillis;
+    private final long    rows;
+    private final boolean failed;
+    private final long    timestamp;
+
+    public SlowQuery(String template, String params, long elapsedMillis, long rows, boolean failed, long timestamp) {
+      this.template      = template;
+      this.params        = params;
+      this.elapsedMillis = elapsedMillis;
+      this.rows          = rows;
+      this.failed        = failed;
+      this.timestamp     = timestamp;
+    }
+  }
+}
@@ -0,0 +1,310 @@
+package net.binhnguyen.lib.sql;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage A SQL template with named parameters (`:keyName`), parsed once into positional `?` slots. <br/>
+ *        {@link #compile(String)} caches the parsed plan by template text, {@link #bind(Record)} expands it
+ *        for one set of values and {@link BoundSql#bindTo(PreparedStatement)} applies typed binding. <br/>
+ *        A name used more than once is bound once: later uses point back to the first slot as `$n`, so the server sees one parameter
+ *        and `(:x IS NULL OR col = :x)` takes its type from `col` even when x is null or a String.
+ *        INSERT templates bind every use separately, `reWriteBatchedInserts` renumbers their slots. <br/>
+ *        This needs the driver's extended protocol (the default), not `preferQueryMode=simple`. <br/>
+ *        Collections / arrays expand to `?, ?, ...` padded to a power of two (repeating the last value),
+ *        so `IN (:ids)` only produces a handful of distinct statements and the server can reuse its plans. <br/>
+ *        Above {@link #ARRAY_BIND_THRESHOLD} values, a collection that is the whole list of an `IN (...)` is sent as a single
+ *        untyped array literal instead: `IN (:ids)` becomes `= ANY(?)` and `NOT IN (:ids)` becomes `<> ALL(?)`, the driver caps
+ *        a statement at {@link #MAX_BIND_PARAMETERS} parameters. Like the untyped Strings of the expanded list,
+ *        the server gives the array the type of the column, so enum, date or uuid columns work the same on both sides of the threshold.
+ */
+@Slf4j
+@Getter
+public class SqlTemplate {
+
+  public static final int ARRAY_BIND_THRESHOLD = 1024;
+  public static final int MAX_BIND_PARAMETERS  = 32767;
+
+  private static final int MAX_CACHED_TEMPLATES = 2048;
+  private static final Map<String, SqlTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+  private static final Pattern IN_LIST_OPEN   = Pattern.compile("(?i)(\\bNOT\\s+)?\\bIN\\s*\\(\\s*$");
+  private static final Pattern IN_LIST_CLOSE  = Pattern.compile("^\\s*\\)");
+  private static final Pattern INSERT         = Pattern.compile("(?i)^\\s*INSERT\\b");
+
+  private final String        template;
+  /** SQL text around the slots. Always {@code parameterNames.size() + 1} elements */
+  private final List<String>  segments;
+  /** Parameter name of each slot, in order. A name may appear more than once */
+  private final List<String>  parameterNames;
+  /** Per slot, where `IN (` / `NOT IN (` starts in the segment before it when the slot is the whole list, else -1 */
+  private final int[]         inListStarts;
+  private final boolean[]     notInLists;
+  private final boolean       reuseRepeatedNames;
+
+  private SqlTemplate(String template, List<String> segments, List<String> parameterNames) {
+    this.template       = template;
+    this.segments       = segments;
+    this.parameterNames = parameterNames;
+    this.inListStarts   = new int[parameterNames.size()];
+    this.notInLists     = new boolean[parameterNames.size()];
+    for (int i = 0; i < parameterNames.size(); i++) {
+      Matcher open = IN_LIST_OPEN.matcher(segments.get(i));
+      boolean inList = open.find() && IN_LIST_CLOSE.matcher(segments.get(i + 1)).find();
+      inListStarts[i] = inList ? open.start() : -1;
+      notInLists[i]   = inList && Objects.nonNull(open.group(1));
+    }
+    this.reuseRepeatedNames = !INSERT.matcher(template).find();
+  }
+
+  public static SqlTemplate compile(String template) {
+    SqlTemplate compiled = TEMPLATES.get(template);
+    if (Objects.nonNull(compiled)) return compiled;
+    if (TEMPLATES.size() >= MAX_CACHED_TEMPLATES) {
+      log.warn("SqlTemplate cache reached {} entries, clearing. Are templates built with inline values?", MAX_CACHED_TEMPLATES);
+      TEMPLATES.clear();
+    }
+    compiled = parse(template);
+    TEMPLATES.put(template, compiled);
+    return compiled;
+  }
+
+  public Set<String> getDistinctParameterNames() {
+    return new LinkedHashSet<>(parameterNames);
+  }
+
+  /**
+   * @param keyValues A Map of `:keyName` and its value
+   * @return The positional SQL with its values, or null if a key is not used by the template
+   */
+  public BoundSql bind(Record keyValues) {
+    for (String key : keyValues.keySet()) {
+      if (!parameterNames.contains(key)) {
+        log.error("Key :{} not found in SQL_QUERY \n{}", key, template);
+        return null;
+      }
+    }
+
+    StringBuilder sql = new StringBuilder(template.length() + 16);
+    List<Object> values = new ArrayList<>(parameterNames.size());
+    Map<String, Integer> boundSlots = new HashMap<>();
+    for (int i = 0; i < parameterNames.size(); i++) {
+      String name = parameterNames.get(i);
+      if (!keyValues.containsKey(name)) {
+        throw new RuntimeException("Missing value for :" + name + " in SQL_QUERY \n" + template);
+      }
+      Object value = keyValues.get(name);
+      List<?> items = switch (value) {
+        case Collection<?> collection -> new ArrayList<>(collection);
+        case Object[] objects -> Arrays.asList(objects);
+        case null, default -> null;
+      };
+
+      if (Objects.nonNull(items) && items.size() > ARRAY_BIND_THRESHOLD && inListStarts[i] >= 0) {
+        sql.append(segments.get(i), 0, inListStarts[i]).append(notInLists[i] ? "<> ALL(?" : "= ANY(?");
+        values.add(ArrayValue.of(items));
+        continue;
+      }
+      sql.append(segments.get(i));
+      if (Objects.nonNull(items)) {
+        appendExpanded(sql, values, items);
+      } else if (reuseRepeatedNames && boundSlots.containsKey(name)) {
+        sql.append('$').append(boundSlots.get(name));
+      } else {
+        sql.append('?');
+        values.add(value);
+        boundSlots.put(name, values.size());
+      }
+    }
+    sql.append(segments.getLast());
+    if (values.size() > MAX_BIND_PARAMETERS) {
+      throw new IllegalArgumentException(
+        "SQL_QUERY binds " + values.size() + " parameters, the limit is " + MAX_BIND_PARAMETERS + " \n" + template
+      );
+    }
+    return new BoundSql(sql.toString(), values);
+  }
+
+  private static void appendExpanded(StringBuilder sql, List<Object> values, List<?> items) {
+    if (items.isEmpty()) {
+      sql.append("NULL");
+      return;
+    }
+    int slots = Integer.highestOneBit(items.size());
+    if (slots < items.size()) slots <<= 1;
+    Object last = items.getLast();
+    for (int i = 0; i < slots; i++) {
+      if (i > 0) sql.append(", ");
+      sql.append('?');
+      values.add(i < items.size() ? items.get(i) : last);
+    }
+  }
+
+  /**
+   * Split the template at every `:name` outside of string literals, quoted identifiers, comments and `::` casts.
+   * A literal `?` (e.g. jsonb operators) is escaped as `??` for the JDBC driver.
+   */
+  static SqlTemplate parse(String template) {
+    List<String> segments = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    StringBuilder current = new StringBuilder(template.length());
+    final int length = template.length();
+    int i = 0;
+    while (i < length) {
+      char c = template.charAt(i);
+      if (c == '\'' || c == '"') {
+        int end = skipQuoted(template, i, c);
+        current.append(template, i, end);
+        i = end;
+      } else if (c == '-' && i + 1 < length && template.charAt(i + 1) == '-') {
+        int end = template.indexOf('\n', i);
+        if (end < 0) end = length;
+        current.append(template, i, end);
+        i = end;
+      } else if (c == '/' && i + 1 < length && template.charAt(i + 1) == '*') {
+        int end = template.indexOf("*/", i + 2);
+        end = end < 0 ? length : end + 2;
+        current.append(template, i, end);
+        i = end;
+      } else if (c == '$' && isDollarQuoteStart(template, i)) {
+        int tagEnd = template.indexOf('$', i + 1);
+        String tag = template.substring(i, tagEnd + 1);
+        int close = template.indexOf(tag, tagEnd + 1);
+        int end = close < 0 ? length : close + tag.length();
+        current.append(template, i, end);
+        i = end;
+      } else if (c == ':' && i + 1 < length && template.charAt(i + 1) == ':') {
+        current.append("::");
+        i += 2;
+      } else if (c == ':' && i + 1 < length && Character.isJavaIdentifierStart(template.charAt(i + 1))) {
+        int end = i + 1;
+        while (end < length && Character.isJavaIdentifierPart(template.charAt(end))) end++;
+        names.add(template.substring(i + 1, end));
+        segments.add(current.toString());
+        current.setLength(0);
+        i = end;
+      } else if (c == '?') {
+        current.append("??");
+        i++;
+      } else {
+        current.append(c);
+        i++;
+      }
+    }
+    segments.add(current.toString());
+    return new SqlTemplate(template, List.copyOf(segments), List.copyOf(names));
+  }
+
+  private static int skipQuoted(String template, int start, char quote) {
+    int i = start + 1;
+    while (i < template.length()) {
+      if (template.charAt(i) == quote) {
+        if (i + 1 < template.length() && template.charAt(i + 1) == quote) i += 2; // escaped quote
+        else return i + 1;
+      } else i++;
+    }
+    return template.length();
+  }
+
+  private static boolean isDollarQuoteStart(String template, int start) {
+    if (start > 0 && Character.isJavaIdentifierPart(template.charAt(start - 1))) return false; // e.g. identifier$1
+    int i = start + 1;
+    while (i < template.length() && template.charAt(i) != '$') {
+      char c = template.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '_') return false;
+      i++;
+    }
+    return i < template.length();
+  }
+
+  /**
+   * Bind a single value with the setter matching its Java type. <br/>
+   * Strings are sent untyped so the server infers the type from context, exactly like the quoted literals
+   * produced by {@link net.binhnguyen.lib.utils.DBConnectUtils#assignSqlHolderWithValue(String, Record)}.
+   */
+  public static void bindValue(PreparedStatement statement, int index, Object value) throws SQLException {
+    switch (value) {
+      case null -> statement.setNull(index, Types.NULL);
+      case String str -> statement.setObject(index, str, Types.OTHER);
+      case Long num -> statement.setLong(index, num);
+      case Integer num -> statement.setInt(index, num);
+      case Short num -> statement.setShort(index, num);
+      case Double num -> statement.setDouble(index, num);
+      case Float num -> statement.setFloat(index, num);
+      case BigDecimal num -> statement.setBigDecimal(index, num);
+      case Boolean bool -> statement.setBoolean(index, bool);
+      case Enum<?> enumValue -> statement.setObject(index, enumValue.name(), Types.OTHER);
+      case Character character -> statement.setString(index, character.toString());
+      case byte[] bytes -> statement.setBytes(index, bytes);
+      case Timestamp timestamp -> statement.setTimestamp(index, timestamp);
+      case java.sql.Date date -> statement.setDate(index, date);
+      case java.util.Date date -> statement.setTimestamp(index, new Timestamp(date.getTime()));
+      case ZonedDateTime zoned -> statement.setObject(index, zoned.toOffsetDateTime());
+      case ArrayValue array -> statement.setObject(index, array.toLiteral(), Types.OTHER);
+      default -> statement.setObject(index, value);
+    }
+  }
+
+  /** A large collection bound as one untyped array literal, see {@link #ARRAY_BIND_THRESHOLD} */
+  @Getter
+  public static class ArrayValue {
+    private final List<Object> elements;
+
+    public ArrayValue(List<Object> elements) {
+      this.elements = elements;
+    }
+
+    static ArrayValue of(List<?> items) {
+      List<Object> elements = new ArrayList<>(items.size());
+      for (Object item : items) {
+        elements.add(switch (item) {
+          case java.util.Date date when !(date instanceof java.sql.Date) && !(date instanceof Timestamp) -> new Timestamp(date.getTime());
+          case ZonedDateTime zoned -> zoned.toOffsetDateTime();
+          case null, default -> item;
+        });
+      }
+      return new ArrayValue(elements);
+    }
+
+    /** @return `{"a","b",NULL}`, the server casts it to the array type the query expects */
+    public String toLiteral() {
+      return CopyCsvCodec.toArrayLiteral(elements);
+    }
+
+    @Override
+    public String toString() {
+      return "array[" + elements.size() + "]";
+    }
+  }
+
+  @Getter
+  public static class BoundSql {
+    private final String        sql;
+    private final List<Object>  values;
+
+    public BoundSql(String sql, List<Object> values) {
+      this.sql    = sql;
+      this.values = values;
+    }
+
+    public void bindTo(PreparedStatement statement) throws SQLException {
+      for (int i = 0; i < values.size(); i++) {
+        bindValue(statement, i + 1, values.get(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package net.binhnguyen.lib.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Mapping plan of a class, built once per class and cached: <br/>
+ *        - A no-arg constructor and one setter {@link MethodHandle} per field, inherited and final fields included. <br/>
+ *        - One converter per field type, so `"12"`, `12.0` and `12L` all fill a {@code Long} and `"ACTIVE"` fills an enum. <br/>
+ *          Text with a fraction (`"12.5"`) doesn't fill an integral type. <br/>
+ *        A key matches a field by its name or by its snake_case name (`created_time` -> `createdTime`).
+ *        A value that can't be converted is logged and the field is left untouched.
+ */
+@Slf4j
+public class BeanMapper<T> {
+
+  private static final ClassValue<BeanMapper<?>> MAPPERS = new ClassValue<>() {
+    @Override
+    protected BeanMapper<?> computeValue(Class<?> clazz) {
+      return new BeanMapper<>(clazz);
+    }
+  };
+
+  private final Class<T>              clazz;
+  private final MethodHandle          constructor;
+  private final Map<String, Property> properties = new HashMap<>();
+
+  @SuppressWarnings("unchecked")
+  public static <T> BeanMapper<T> of(Class<T> clazz) {
+    return (BeanMapper<T>) MAPPERS.get(clazz);
+  }
+
+  private BeanMapper(Class<T> clazz) {
+    this.clazz = clazz;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+      this.constructor = lookup.findConstructor(clazz, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+
+      // Walk up to Object, fields of a subclass win over the fields they hide
+      for (Class<?> type = clazz; Objects.nonNull(type) && !Object.class.equals(type); type = type.getSuperclass()) {
+        MethodHandles.Lookup typeLookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        for (Field field : type.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (Modifier.isStatic(modifiers) || field.isSynthetic()) continue;
+          if (properties.containsKey(field.getName())) continue;
+          if (Modifier.isFinal(modifiers)) field.setAccessible(true); // A setter handle on a final field needs the override flag
+
+          MethodHandle setter = typeLookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+          Property property = new Property(field.getName(), field.getType(), setter, converterOf(field.getType()));
+          properties.put(field.getName(), property);
+        }
+      }
+      for (Property property : new ArrayList<>(properties.values())) {
+        properties.putIfAbsent(toSnakeCase(property.name), property);
+      }
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      log.error("Can't build mapping plan of {}", clazz.getName(), e);
+      throw new RuntimeException(e.getMessage(), e);
+    }
+  }
+
+  public T newInstance() {
+    try {
+      return clazz.cast((Object) constructor.invokeExact());
+    } catch (Throwable e) {
+      log.error("Error creating class instance: {}", e.getMessage(), e);
+      throw new RuntimeException(e.getMessage(), e);
+    }
+  }
+
+  public T map(Record record) {
+    T instance = newInstance();
+    for (Map.Entry<String, Object> entry : record.entrySet()) {
+      Property property = properties.get(entry.getKey());
+      if (Objects.nonNull(property)) property.set(instance, entry.getValue());
+    }
+    return instance;
+  }
+
+  public List<T> map(List<Record> records) {
+    List<T> results = new ArrayList<>(records.size());
+    for (Record record : records) {
+      results.add(map(record));
+    }
+    return results;
+  }
+
+  /**
+   * Map every remaining row of {@code resultSet} straight to instances, without building a {@link Record} per row.
+   * Columns are matched to fields once, from the result set metadata. Unmatched columns are not read.
+   */
+  public List<T> mapRows(ResultSet resultSet) throws SQLException {
+    final ResultSetMetaData metaData = resultSet.getMetaData();
+    final int columnCount = metaData.getColumnCount();
+    final int[] columns = new int[columnCount];
+    final Property[] targets = new Property[columnCount];
+    int mapped = 0;
+    for (int col = 1; col <= columnCount; col++) {
+      Property property = properties.get(metaData.getColumnLabel(col));
+      if (Objects.isNull(property)) continue;
+      columns[mapped] = col;
+      targets[mapped] = property;
+      mapped++;
+    }
+
+    List<T> results = new ArrayList<>();
+    while (resultSet.next()) {
+      T instance = newInstance();
+      for (int i = 0; i < mapped; i++) {
+        targets[i].set(instance, resultSet.getObject(columns[i]));
+      }
+      results.add(instance);
+    }
+    return results;
+  }
+
+  private static String toSnakeCase(String name) {
+    StringBuilder snake = new StringBuilder(name.length() + 4);
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isUpperCase(c)) {
+        if (i > 0) snake.append('_');
+        snake.append(Character.toLowerCase(c));
+      } else snake.append(c);
+    }
+    return snake.toString();
+  }
+
+  private static class Property {
+    private final String                    name;
+    private final Class<?>                  type;
+    private final MethodHandle              setter;
+    private final Function<Object, Object>  converter;
+
+    private Property(String name, Class<?> type, MethodHandle setter, Function<Object, Object> converter) {
+      this.name      = name;
+      this.type      = type;
+      this.setter    = setter;
+      this.converter = converter;
+    }
+
+    private void set(Object instance, Object value) {
+      if (Objects.isNull(value)) return;
+      try {
+        Object converted = converter.apply(value);
+        if (Objects.isNull(converted)) return;
+        setter.invokeExact(instance, converted);
+      } catch (Throwable e) {
+        log.error("Error setting field {} ({}) from {}: {}", name, type.getSimpleName(), value.getClass().getSimpleName(), e.getMessage());
+      }
+    }
+  }
+
+  // Converters. Each one returns null for a blank String, so empty Excel cells leave the field untouched
+
+  private static Function<Object, Object> converterOf(Class<?> type) {
+    if (type.isPrimitive()) type = boxed(type);
+    final Class<?> target = type;
+
+    if (String.class.equals(target)) {
+      return value -> value instanceof Enum<?> enumValue ? enumValue.name() : value.toString();
+    }
+    if (Long.class.equals(target))    return number(target, Number::longValue, text -> new BigDecimal(text).longValueExact());
+    if (Integer.class.equals(target)) return number(target, Number::intValue, text -> new BigDecimal(text).intValueExact());
+    if (Short.class.equals(target))   return number(target, Number::shortValue, text -> new BigDecimal(text).shortValueExact());
+    if (Byte.class.equals(target))    return number(target, Number::byteValue, text -> new BigDecimal(text).byteValueExact());
+    if (Double.class.equals(target))  return number(target, Number::doubleValue, Double::valueOf);
+    if (Float.class.equals(target))   return number(target, Number::floatValue, Float::valueOf);
+    if (BigDecimal.class.equals(target)) {
+      return number(target, num -> num instanceof BigInteger big ? new BigDecimal(big) : new BigDecimal(num.toString()), BigDecimal::new);
+    }
+    if (BigInteger.class.equals(target)) {
+      return number(target, num -> num instanceof BigDecimal dec ? dec.toBigInteger() : BigInteger.valueOf(num.longValue()), text -> new BigDecimal(text).toBigInteger());
+    }
+    if (Boolean.class.equals(target)) {
+      return value -> switch (value) {
+        case Boolean bool -> bool;
+        case Number num -> num.intValue() != 0;
+        default -> {
+          String text = value.toString().trim();
+          if (text.isEmpty()) yield null;
+          yield "true".equalsIgnoreCase(text) || "t".equalsIgnoreCase(text) || "1".equals(text) || "yes".equalsIgnoreCase(text);
+        }
+      };
+    }
+    if (target.isEnum()) return enumConverter(target);
+    if (LocalDateTime.class.equals(target)) return temporal(target, instant -> LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
+    if (LocalDate.class.equals(target))     return temporal(target, instant -> LocalDate.ofInstant(instant, ZoneId.systemDefault()));
+    if (OffsetDateTime.class.equals(target)) return temporal(target, instant -> OffsetDateTime.ofInstant(instant, ZoneId.systemDefault()));
+    if (ZonedDateTime.class.equals(target)) return temporal(target, instant -> ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()));
+    if (Instant.class.equals(target))       return temporal(target, instant -> instant);
+    if (Timestamp.class.equals(target))     return temporal(target, Timestamp::from);
+    if (java.sql.Date.class.equals(target)) return temporal(target, instant -> java.sql.Date.valueOf(LocalDate.ofInstant(instant, ZoneId.systemDefault())));
+    if (Date.class.equals(target))          return temporal(target, Date::from);
+    if (UUID.class.equals(target)) {
+      return value -> value instanceof UUID ? value : blankToNull(value.toString(), UUID::fromString);
+    }
+    return value -> {
+      if (target.isInstance(value)) return value;
+      throw new IllegalArgumentException("No conversion to " + target.getName());
+    };
+  }
+
+  private static Class<?> boxed(Class<?> primitive) {
+    return MethodType.methodType(primitive).wrap().returnType();
+  }
+
+  private static Function<Object, Object> number(Class<?> target, Function<Number, Object> fromNumber, Function<String, Object> fromText) {
+    return value -> {
+      if (target.isInstance(value)) return value;
+      if (value instanceof Number num) return fromNumber.apply(num);
+      if (value instanceof Boolean bool) return fromNumber.apply(bool ? 1 : 0);
+      return blankToNull(value.toString(), fromText);
+    };
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Function<Object, Object> enumConverter(Class<?> target) {
+    final Object[] constants = target.getEnumConstants();
+    return value -> {
+      if (target.isInstance(value)) return value;
+      if (value instanceof Number num) return constants[num.intValue()];
+      return blankToNull(value.toString(), text -> Enum.valueOf((Class) target, text));
+    };
+  }
+
+  private static Function<Object, Object> temporal(Class<?> target, Function<Instant, Object> fromInstant) {
+    return value -> {
+      if (target.isInstance(value) && !(Date.class.equals(target) && value instanceof java.sql.Date)) return value;
+      return switch (value) {
+        case Timestamp timestamp -> {
+          if (LocalDateTime.class.equals(target)) yield timestamp.toLocalDateTime();
+          yield fromInstant.apply(timestamp.toInstant());
+        }
+        case java.sql.Date date -> {
+          if (LocalDate.class.equals(target)) yield date.toLocalDate();
+          yield fromInstant.apply(date.toLocalDate().atStartOfDay(ZoneId.systemDefault()).toInstant());
+        }
+        case Date date -> fromInstant.apply(date.toInstant());
+        case Instant instant -> fromInstant.apply(instant);
+        case LocalDateTime dateTime -> fromInstant.apply(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+        case LocalDate date -> fromInstant.apply(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        case OffsetDateTime dateTime -> fromInstant.apply(dateTime.toInstant());
+        case ZonedDateTime dateTime -> fromInstant.apply(dateTime.toInstant());
+        case Number epochMillis -> fromInstant.apply(Instant.ofEpochMilli(epochMillis.longValue()));
+        default -> blankToNull(value.toString(), text -> fromInstant.apply(parseInstant(text)));
+      };
+    };
+  }
+
+  /** ISO-8601 with or without offset, `yyyy-MM-dd HH:mm:ss[.SSS]` or a plain date */
+  private static Instant parseInstant(String text) {
+    String normalized = text.trim().replace(' ', 'T');
+    if (normalized.length() == 10) return LocalDate.parse(normalized).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    try {
+      return OffsetDateTime.parse(normalized).toInstant();
+    } catch (DateTimeException e) {
+      return LocalDateTime.parse(normalized).atZone(ZoneId.systemDefault()).toInstant();
+    }
+  }
+
+  private static Object blankToNull(String text, Function<String, Object> parser) {
+    String trimmed = text.trim();
+    return trimmed.isEmpty() ? null : parser.apply(trimmed);
+  }
+}
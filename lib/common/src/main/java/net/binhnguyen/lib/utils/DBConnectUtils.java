@@ -1,23 +1,55 @@
 package net.binhnguyen.lib.utils;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.common.RecordSchema;
+import net.binhnguyen.lib.common.RecordSet;
+import net.binhnguyen.lib.sql.CopyCsvCodec;
+import net.binhnguyen.lib.sql.LeakDetector;
+import net.binhnguyen.lib.sql.RecordCursor;
+import net.binhnguyen.lib.sql.SqlExecutionException;
+import net.binhnguyen.lib.sql.SqlMetrics;
+import net.binhnguyen.lib.sql.SqlTemplate;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOperation;
+import org.postgresql.copy.CopyOut;
 
 import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
 /**
  * @author Bình Nguyễn
  * @Email jackjack2000.kahp@gmail.com
+ * @Usage Statements are prepared per call and closed right after, the pool closes them anyway when the lease ends. <br/>
+ *        Reuse across leases comes from the Postgres driver, which keeps server-side prepared statements per
+ *        physical connection. Tune it with the JDBC url parameters `prepareThreshold` (executions before a query
+ *        is prepared server-side, default 5) and `preparedStatementCacheQueries` (default 256).
  */
 
 @Slf4j
 @Getter
-public class DBConnectUtils {
+public class DBConnectUtils implements AutoCloseable {
 
-  private final Connection connection;
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  public static final int COPY_BUFFER_SIZE   = 64 * 1024;
+
+  private final Connection  connection;
+  private final SqlMetrics  metrics = SqlMetrics.getInstance();
+
+  /** Cursors handed out and not closed yet. Weak, so a leaked cursor can still be collected and reported */
+  @Getter(AccessLevel.NONE)
+  private final Set<RecordCursor>     openCursors = Collections.newSetFromMap(new WeakHashMap<>());
+  @Getter(AccessLevel.NONE)
+  private final LeakDetector.Tracked  leakTracker;
 
   public DBConnectUtils(DataSource dataSource) {
     try {
@@ -25,12 +57,14 @@ public class DBConnectUtils {
       this.connection.setAutoCommit(false);
     } catch (SQLException e) {
       log.error("Failed to connect to database", e);
-      throw new RuntimeException(e.getMessage());
+      throw new SqlExecutionException(e);
     }
+    this.leakTracker = LeakDetector.track(this, "Connection lease", connection);
   }
 
   public DBConnectUtils(Connection connection) {
-    this.connection = connection;
+    this.connection  = connection;
+    this.leakTracker = null;
   }
 
   public void commit() {
@@ -38,7 +72,7 @@ public class DBConnectUtils {
       connection.commit();
     } catch (SQLException e) {
       log.error("Can't Commit", e);
-      throw new RuntimeException(e.getMessage());
+      throw new SqlExecutionException(e);
     }
   }
 
@@ -47,87 +81,484 @@ public class DBConnectUtils {
       connection.rollback();
     } catch (SQLException e) {
       log.error("Can't Rollback", e);
-      throw new RuntimeException(e.getMessage());
+      throw new SqlExecutionException(e);
     }
   }
 
+  /** Close open cursors, then the connection (a leased connection goes back to the pool) */
+  @Override
   public void close() {
+    closeOpenCursors();
+    if (Objects.nonNull(leakTracker)) leakTracker.close();
     try {
       connection.close();
     } catch (SQLException e) {
       log.error("Can't Close connection", e);
-      throw new RuntimeException(e.getMessage());
+      throw new SqlExecutionException(e);
     }
   }
 
   public int executeUpdate(String sql, Record keyValues) {
-    sql = assignSqlHolderWithValue(sql, keyValues);
-    if (Objects.isNull(sql)) return 0;
-    return executeUpdate(sql);
+    final SqlTemplate.BoundSql bound = bind(sql, keyValues);
+    if (Objects.isNull(bound)) return 0;
+    try {
+      return timed(sql, keyValues, () -> withStatement(bound, PreparedStatement::executeUpdate), Integer::longValue);
+    } catch (SQLException e) {
+      log.error("Can't Execute Update Query", e);
+      throw new SqlExecutionException(e);
+    }
   }
 
-  public int executeUpdate(String sql) {
+  public int executeBatch(String SQL_TEMPLATE, List<Record> rows) {
+    return executeBatch(SQL_TEMPLATE, rows, DEFAULT_BATCH_SIZE, BatchCommitPolicy.NONE);
+  }
+
+  /**
+   * Bind every row to the same template and send them with {@link PreparedStatement#executeBatch()},
+   * {@code batchSize} rows per round trip. <br/>
+   * Add `reWriteBatchedInserts=true` to the JDBC url so the Postgres driver folds each batch of
+   * INSERTs into multi-row INSERT statements.
+   * @param rows A Map of `:keyName` and its value per row. Every row must use the template's keys
+   * @return Total affected rows. Rows the driver reports without a count are counted as 1
+   */
+  public int executeBatch(String SQL_TEMPLATE, List<Record> rows, int batchSize, BatchCommitPolicy commitPolicy) {
+    if (Objects.isNull(rows) || rows.isEmpty()) {
+      log.warn("Batch rows are empty");
+      return 0;
+    }
+    if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+
+    final SqlTemplate template = SqlTemplate.compile(SQL_TEMPLATE);
+    PreparedStatement statement = null;
+    String statementSql = null;
+    int pending = 0;
+    int total = 0;
+    final long start = System.nanoTime();
+    try {
+      for (int i = 0; i < rows.size(); i++) {
+        final Record row = ensureKeyValues(rows.get(i));
+        final SqlTemplate.BoundSql bound = Objects.isNull(row) ? null : template.bind(row);
+        if (Objects.isNull(bound)) throw new RuntimeException("Batch row " + i + " does not match SQL_TEMPLATE \n" + SQL_TEMPLATE);
+
+        // Collections of another size expand to another statement, flush what has been queued so far
+        if (!bound.getSql().equals(statementSql)) {
+          total += flushBatch(statement, pending, commitPolicy);
+          pending = 0;
+          closeQuietly(statement);
+          statement = null; // Already closed, in case prepare fails
+          statement = connection.prepareStatement(bound.getSql());
+          statementSql = bound.getSql();
+        }
+
+        bound.bindTo(statement);
+        statement.addBatch();
+        if (++pending == batchSize) {
+          total += flushBatch(statement, pending, commitPolicy);
+          pending = 0;
+        }
+      }
+      total += flushBatch(statement, pending, commitPolicy);
+      if (BatchCommitPolicy.AT_END.equals(commitPolicy)) commit();
+      metrics.record(SQL_TEMPLATE, System.nanoTime() - start, total, false, null);
+      log.debug("Executed batch SQL: \n{}\n\t Affected {} Records", SQL_TEMPLATE, total);
+      return total;
+    } catch (SQLException e) {
+      metrics.record(SQL_TEMPLATE, System.nanoTime() - start, total, true, null);
+      SQLException cause = Objects.nonNull(e.getNextException()) ? e.getNextException() : e;
+      log.error("Can't Execute Batch Query", cause);
+      if (!BatchCommitPolicy.NONE.equals(commitPolicy)) rollback();
+      throw new SqlExecutionException(cause);
+    } catch (RuntimeException e) {
+      metrics.record(SQL_TEMPLATE, System.nanoTime() - start, total, true, null);
+      if (!BatchCommitPolicy.NONE.equals(commitPolicy)) rollback();
+      throw e;
+    } finally {
+      closeQuietly(statement);
+    }
+  }
+
+  private int flushBatch(PreparedStatement statement, int pending, BatchCommitPolicy commitPolicy) throws SQLException {
+    if (Objects.isNull(statement) || pending == 0) return 0;
+    int affected = 0;
+    for (int count : statement.executeBatch()) {
+      if (count == Statement.SUCCESS_NO_INFO) affected++;
+      else if (count > 0) affected += count;
+    }
+    if (BatchCommitPolicy.PER_BATCH.equals(commitPolicy)) commit();
+    return affected;
+  }
+
+  /**
+   * Bulk load rows with Postgres `COPY table (columns) FROM STDIN`, streaming them in CSV chunks of
+   * {@link #COPY_BUFFER_SIZE} characters. Much faster than INSERTs, a failing row aborts the whole COPY.
+   * @param columnMapping Record key -> table column, in the column order of the COPY
+   * @return Number of rows loaded
+   */
+  public long copyIn(String table, Map<String, String> columnMapping, Iterator<Record> rows) {
+    final String COPY_SQL = "COPY " + identifier(table) + " ("
+      + String.join(", ", columnMapping.values().stream().map(this::identifier).toList())
+      + ") FROM STDIN WITH (FORMAT csv)";
+    final String[] keys = columnMapping.keySet().toArray(new String[0]);
+
+    CopyIn copyIn = null;
+    long count = 0;
+    final long start = System.nanoTime();
     try {
-      Statement statement = connection.createStatement();
-      return statement.executeUpdate(sql);
+      copyIn = getCopyManager().copyIn(COPY_SQL);
+      StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE + 1024);
+      Object[] values = new Object[keys.length];
+      while (rows.hasNext()) {
+        Record row = rows.next();
+        for (int i = 0; i < keys.length; i++) {
+          values[i] = row.get(keys[i]);
+        }
+        CopyCsvCodec.appendRow(buffer, values);
+        if (buffer.length() >= COPY_BUFFER_SIZE) writeToCopy(copyIn, buffer);
+      }
+      writeToCopy(copyIn, buffer);
+      count = copyIn.endCopy();
+      metrics.record(COPY_SQL, System.nanoTime() - start, count, false, null);
+      log.debug("Executed SQL: \n{}\n\t Copied {} Records", COPY_SQL, count);
+      return count;
+    } catch (SQLException e) {
+      metrics.record(COPY_SQL, System.nanoTime() - start, count, true, null);
+      cancelCopy(copyIn);
+      log.error("Can't Copy into {}", table, e);
+      throw new SqlExecutionException(e);
+    } catch (RuntimeException e) {
+      metrics.record(COPY_SQL, System.nanoTime() - start, count, true, null);
+      cancelCopy(copyIn);
+      throw e;
+    }
+  }
+
+  /** Same as {@link #copyIn(String, Map, Iterator)}, with Record keys named after the table columns */
+  public long copyIn(String table, List<String> columns, Iterator<Record> rows) {
+    Map<String, String> mapping = new LinkedHashMap<>();
+    for (String column : columns) {
+      mapping.put(column, column);
+    }
+    return copyIn(table, mapping, rows);
+  }
+
+  public long copyIn(String table, List<String> columns, List<Record> rows) {
+    return copyIn(table, columns, rows.iterator());
+  }
+
+  /**
+   * Bulk export with Postgres `COPY (query) TO STDOUT`. Rows are handed to {@code rowConsumer} as they arrive,
+   * one at a time, with every value as its text representation (null for NULL). <br/>
+   * COPY can't take bind parameters, so {@code SQL_QUERY} must be a complete query (or a table name).
+   * @return Number of rows exported
+   */
+  public long copyOut(String SQL_QUERY, Consumer<Record> rowConsumer) {
+    final String source = SQL_QUERY.trim().contains(" ") ? "(" + SQL_QUERY + ")" : identifier(SQL_QUERY.trim());
+    final String COPY_SQL = "COPY " + source + " TO STDOUT WITH (FORMAT csv, HEADER true)";
+
+    CopyOut copyOut = null;
+    long count = 0;
+    final long start = System.nanoTime();
+    try {
+      copyOut = getCopyManager().copyOut(COPY_SQL);
+      List<String> header = null;
+      byte[] line;
+      while ((line = copyOut.readFromCopy()) != null) {
+        List<String> fields = CopyCsvCodec.parseRow(new String(line, StandardCharsets.UTF_8));
+        if (Objects.isNull(header)) {
+          header = fields;
+          continue;
+        }
+        Record row = new Record();
+        for (int i = 0; i < header.size(); i++) {
+          row.put(header.get(i), i < fields.size() ? fields.get(i) : null);
+        }
+        rowConsumer.accept(row);
+        count++;
+      }
+      metrics.record(COPY_SQL, System.nanoTime() - start, count, false, null);
+      log.debug("Executed SQL: \n{}\n\t Exported {} Records", COPY_SQL, count);
+      return count;
+    } catch (SQLException e) {
+      metrics.record(COPY_SQL, System.nanoTime() - start, count, true, null);
+      cancelCopy(copyOut);
+      log.error("Can't Copy out of {}", SQL_QUERY, e);
+      throw new SqlExecutionException(e);
+    } catch (RuntimeException e) {
+      metrics.record(COPY_SQL, System.nanoTime() - start, count, true, null);
+      cancelCopy(copyOut);
+      throw e;
+    }
+  }
+
+  private CopyManager getCopyManager() throws SQLException {
+    return connection.unwrap(PGConnection.class).getCopyAPI();
+  }
+
+  private void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+    if (buffer.isEmpty()) return;
+    byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+    copyIn.writeToCopy(bytes, 0, bytes.length);
+    buffer.setLength(0);
+  }
+
+  private void cancelCopy(CopyOperation operation) {
+    if (Objects.isNull(operation) || !operation.isActive()) return;
+    try {
+      operation.cancelCopy();
+    } catch (SQLException e) {
+      log.error("Can't Cancel copy", e);
+    }
+  }
+
+  /** Table / column names are spliced into COPY statements, so only (schema qualified) identifiers are accepted */
+  private String identifier(String name) {
+    if (Objects.isNull(name) || !name.matches("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?")) {
+      throw new IllegalArgumentException("Invalid identifier: " + name);
+    }
+    return name;
+  }
+
+  public int executeUpdate(String sql) {
+    try (Statement statement = connection.createStatement()) {
+      return timed(sql, null, () -> statement.executeUpdate(sql), Integer::longValue);
     } catch (SQLException e) {
       log.error("Can't Execute Update Query", e);
-      throw new RuntimeException(e.getMessage());
+      throw new SqlExecutionException(e);
     }
   }
 
   public void execute(String SQL_QUERY) {
-    try {
-      Statement statement = connection.createStatement();
-      statement.execute(SQL_QUERY);
+    try (Statement statement = connection.createStatement()) {
+      timed(SQL_QUERY, null, () -> statement.execute(SQL_QUERY), executed -> 0);
+    } catch (SQLException e) {
+      log.error("Can't Execute Query", e);
+      throw new SqlExecutionException(e);
+    }
+  }
+
+  /** Run a plain query without parameters */
+  public List<Record> executeQuery(String SQL_QUERY) {
+    try (Statement statement = connection.createStatement()) {
+      return timed(SQL_QUERY, null, () -> {
+        try (ResultSet resultSet = statement.executeQuery(SQL_QUERY)) {
+          return extractResults(resultSet);
+        }
+      }, List::size);
     } catch (SQLException e) {
       log.error("Can't Execute Query", e);
-      throw new RuntimeException(e.getMessage());
+      throw new SqlExecutionException(e);
     }
   }
 
   public List<Record> execute(String SQL_QUERY_TEMPLATE, Record keyValues) {
-    final String SQL_QUERY = assignSqlHolderWithValue(SQL_QUERY_TEMPLATE, keyValues);
-    if (Objects.isNull(SQL_QUERY)) return Collections.emptyList();
+    final SqlTemplate.BoundSql bound = bind(SQL_QUERY_TEMPLATE, keyValues);
+    if (Objects.isNull(bound)) return Collections.emptyList();
 
     List<Record> results;
     try {
-      Statement stmt = connection.createStatement(ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY);
-      ResultSet resultSet = stmt.executeQuery(SQL_QUERY);
-      results = extractResults(resultSet);
+      results = timed(SQL_QUERY_TEMPLATE, keyValues, () -> withStatement(bound, statement -> {
+        try (ResultSet resultSet = statement.executeQuery()) {
+          return extractResults(resultSet);
+        }
+      }), List::size);
     } catch(SQLException e) {
       log.error("Can't Execute Query", e);
-      throw new RuntimeException(e.getMessage());
+      throw new SqlExecutionException(e);
     }
     return results;
   }
 
+  /**
+   * Open a forward-only cursor that fetches {@code fetchSize} rows per round trip instead of materializing the whole result.
+   * Postgres only honours the fetch size when auto-commit is off, which is how this connection is opened.
+   * @return A cursor that must be closed by the caller. It holds the connection busy until then
+   */
+  public RecordCursor openCursor(String SQL_QUERY_TEMPLATE, Record keyValues, int fetchSize) {
+    final SqlTemplate.BoundSql bound = bind(SQL_QUERY_TEMPLATE, keyValues);
+    if (Objects.isNull(bound)) return null;
+
+    PreparedStatement statement = null;
+    try {
+      if (connection.getAutoCommit()) log.warn("Auto-commit is on, the driver will ignore fetch size {}", fetchSize);
+      statement = connection.prepareStatement(bound.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(fetchSize);
+      bound.bindTo(statement);
+      final PreparedStatement cursorStatement = statement;
+      // Only the first fetch is measured, the cursor is read at the caller's pace
+      ResultSet resultSet = timed(SQL_QUERY_TEMPLATE, keyValues, cursorStatement::executeQuery, opened -> 0);
+      RecordCursor cursor = new RecordCursor(statement, resultSet, bound.getSql());
+      synchronized (openCursors) {
+        openCursors.add(cursor);
+      }
+      return cursor;
+    } catch (SQLException e) {
+      log.error("Can't Execute Query", e);
+      closeQuietly(statement);
+      throw new SqlExecutionException(e);
+    }
+  }
+
+  /**
+   * @return A lazy stream of rows. Use it in try-with-resources, closing the stream releases the cursor
+   * @see #openCursor(String, Record, int)
+   */
+  public Stream<Record> stream(String SQL_QUERY_TEMPLATE, Record keyValues, int fetchSize) {
+    RecordCursor cursor = openCursor(SQL_QUERY_TEMPLATE, keyValues, fetchSize);
+    if (Objects.isNull(cursor)) return Stream.empty();
+    return cursor.stream();
+  }
+
+  /**
+   * Call {@code rowCallback} for each row, keeping at most one fetch window in memory.
+   * @return Number of rows processed
+   */
+  public long forEach(String SQL_QUERY_TEMPLATE, Record keyValues, int fetchSize, Consumer<Record> rowCallback) {
+    RecordCursor cursor = openCursor(SQL_QUERY_TEMPLATE, keyValues, fetchSize);
+    if (Objects.isNull(cursor)) return 0;
+
+    long count = 0;
+    try (cursor) {
+      while (cursor.hasNext()) {
+        rowCallback.accept(cursor.next());
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @param SQL_QUERY_TEMPLATE Template SQL with keys that defined as `:keyName`
+   * @param keyValues A Map of `:keyName` and its value
+   * @return The template compiled to positional `?` slots with its values, or null if it should not be executed
+   */
+  public SqlTemplate.BoundSql bind(String SQL_QUERY_TEMPLATE, Record keyValues) {
+    final Record ensured = ensureKeyValues(keyValues);
+    if (Objects.isNull(ensured)) return null;
+    final SqlTemplate.BoundSql bound = SqlTemplate.compile(SQL_QUERY_TEMPLATE).bind(ensured);
+    if (Objects.nonNull(bound) && log.isDebugEnabled()) log.debug("\nExecuted SQL: \n{}", bound.getSql());
+    return bound;
+  }
+
+  private void closeQuietly(Statement statement) {
+    if (Objects.isNull(statement)) return;
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      log.error("Can't Close statement", e);
+    }
+  }
+
+  /** Run {@code work} with a statement bound to {@code bound}, closed afterwards along with its result sets */
+  private <T> T withStatement(SqlTemplate.BoundSql bound, StatementWork<T> work) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(bound.getSql())) {
+      bound.bindTo(statement);
+      return work.apply(statement);
+    }
+  }
+
+  @FunctionalInterface
+  private interface StatementWork<T> {
+    T apply(PreparedStatement statement) throws SQLException;
+  }
+
+  /** Run {@code call} and record its latency, row count and outcome in {@link SqlMetrics} under {@code SQL_TEMPLATE} */
+  private <T> T timed(String SQL_TEMPLATE, Record keyValues, SqlCall<T> call, ToLongFunction<T> rowCount) throws SQLException {
+    final long start = System.nanoTime();
+    try {
+      T result = call.call();
+      metrics.record(SQL_TEMPLATE, System.nanoTime() - start, rowCount.applyAsLong(result), false, keyValues);
+      return result;
+    } catch (SQLException | RuntimeException e) {
+      metrics.record(SQL_TEMPLATE, System.nanoTime() - start, 0, true, keyValues);
+      throw e;
+    }
+  }
+
+  @FunctionalInterface
+  private interface SqlCall<T> {
+    T call() throws SQLException;
+  }
+
+  private void closeOpenCursors() {
+    List<RecordCursor> leftovers;
+    synchronized (openCursors) {
+      leftovers = new ArrayList<>(openCursors);
+      openCursors.clear();
+    }
+    for (RecordCursor cursor : leftovers) {
+      if (cursor.isClosed()) continue;
+      log.warn("Closing connection with a cursor that was never closed");
+      cursor.close();
+    }
+  }
+
+  /**
+   * Same as {@link #execute(String, Record)}, but rows are kept as flat arrays sharing one {@link RecordSchema}.
+   * Prefer it for large results that are only read.
+   */
+  public RecordSet query(String SQL_QUERY_TEMPLATE, Record keyValues) {
+    final SqlTemplate.BoundSql bound = bind(SQL_QUERY_TEMPLATE, keyValues);
+    if (Objects.isNull(bound)) return null;
+
+    try {
+      return timed(SQL_QUERY_TEMPLATE, keyValues, () -> withStatement(bound, statement -> {
+        try (ResultSet resultSet = statement.executeQuery()) {
+          return extractRecordSet(resultSet);
+        }
+      }), RecordSet::size);
+    } catch(SQLException e) {
+      log.error("Can't Execute Query", e);
+      throw new SqlExecutionException(e);
+    }
+  }
+
+  /**
+   * Same as {@link #execute(String, Record)}, but each row is mapped straight to {@code clazz} through {@link BeanMapper},
+   * without building a {@link Record} per row. Columns match fields by name or snake_case name.
+   */
+  public <T> List<T> query(String SQL_QUERY_TEMPLATE, Record keyValues, Class<T> clazz) {
+    final SqlTemplate.BoundSql bound = bind(SQL_QUERY_TEMPLATE, keyValues);
+    if (Objects.isNull(bound)) return Collections.emptyList();
+
+    final BeanMapper<T> mapper = BeanMapper.of(clazz);
+    try {
+      return timed(SQL_QUERY_TEMPLATE, keyValues, () -> withStatement(bound, statement -> {
+        try (ResultSet resultSet = statement.executeQuery()) {
+          return mapper.mapRows(resultSet);
+        }
+      }), List::size);
+    } catch(SQLException e) {
+      log.error("Can't Execute Query", e);
+      throw new SqlExecutionException(e);
+    }
+  }
+
   private List<Record> extractResults(ResultSet resultSet) throws SQLException {
     List<Record> objects = new ArrayList<>();
-    ResultSetMetaData metaData = resultSet.getMetaData();
-    int columnCount = metaData.getColumnCount();
-
+    RecordSchema schema = RecordSchema.of(resultSet.getMetaData());
     while (resultSet.next()) {
-      Record row = new Record();
-      for (int i = 1; i <= columnCount; i++) {
-        String columnName = metaData.getColumnName(i);
-        Object columnValue = resultSet.getObject(i);
-        row.put(columnName, columnValue);
-      }
-      objects.add(row);
+      objects.add(schema.readRecord(resultSet));
     }
     return objects;
   }
 
+  private RecordSet extractRecordSet(ResultSet resultSet) throws SQLException {
+    RecordSet recordSet = new RecordSet(RecordSchema.of(resultSet.getMetaData()));
+    while (resultSet.next()) {
+      recordSet.addRow(recordSet.getSchema().readRow(resultSet));
+    }
+    return recordSet;
+  }
+
   /**
+   * Render the template with literal values. Only meant for reading / dumping SQL,
+   * {@link #execute(String, Record)} and {@link #executeUpdate(String, Record)} bind values through {@link SqlTemplate}.
    * @param SQL_QUERY Template SQL with keys that defined as `:keyName`
    * @param keyValues A Map of `:keyName` and its value
    * @return A full SQL with actual values
    */
   public String assignSqlHolderWithValue(String SQL_QUERY, Record keyValues) {
     final Record ensured = ensureKeyValues(keyValues);
-    System.out.println(DataSerializer.JSON.toString(keyValues));
-
     if (Objects.isNull(ensured)) return null;
 
     for (Map.Entry<String, Object> entry : ensured.entrySet()) {
@@ -142,7 +573,6 @@ public class DBConnectUtils {
           else formatValue = "'" + value + "'";
         }
         case null, default -> {
-          System.out.println(value);
           if (Objects.isNull(value)) formatValue = "NULL";
           else formatValue = String.valueOf(value);
         }
@@ -157,7 +587,7 @@ public class DBConnectUtils {
       }
     }
 
-    log.info("\nExecuted SQL: \n{}", SQL_QUERY);
+    if (log.isDebugEnabled()) log.debug("\nRendered SQL: \n{}", SQL_QUERY);
     return SQL_QUERY;
   }
 
@@ -170,4 +600,12 @@ public class DBConnectUtils {
       return null;
     } else return keyValues;
   }
+
+  /**
+   * When {@link #executeBatch(String, List, int, BatchCommitPolicy)} commits. <br/>
+   * NONE: Leave the transaction to the caller. <br/>
+   * PER_BATCH: Commit after every batch, a failure only rolls back the current batch. <br/>
+   * AT_END: Commit once after all rows, a failure rolls back every row.
+   */
+  public enum BatchCommitPolicy { NONE, PER_BATCH, AT_END }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package net.binhnguyen.lib.utils;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.*;
@@ -9,9 +10,12 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
@@ -34,6 +38,7 @@ public class DataSerializer {
 
   private ObjectMapper mapper;
   private ObjectMapper compactMapper;
+  private ObjectWriter compactWriter;
 
   public DataSerializer(JsonFactory factory) {
     this.mapper = new ObjectMapper(factory);
@@ -42,6 +47,8 @@ public class DataSerializer {
     this.compactMapper = new ObjectMapper(factory);
     configure(this.compactMapper);
     this.compactMapper.disable(SerializationFeature.INDENT_OUTPUT);
+    // Values written into an open generator, the caller decides when to flush
+    this.compactWriter = compactMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
   }
 
   static public void configure(ObjectMapper mapper) {
@@ -97,6 +104,37 @@ public class DataSerializer {
     return holder;
   }
 
+  /** @return A streaming parser, the caller reads values one by one with {@link #readerFor(JavaType)} */
+  public JsonParser createParser(InputStream in) throws IOException {
+    return mapper.createParser(in);
+  }
+
+  public JavaType constructType(Type type) {
+    return mapper.getTypeFactory().constructType(type);
+  }
+
+  /** @return A reader bound to the type, reuse it to skip the deserializer lookup on every read */
+  public ObjectReader readerFor(JavaType type) {
+    return mapper.readerFor(type);
+  }
+
+  /** Serialize straight into an open generator, e.g. the HTTP response, without an intermediate tree or string */
+  public void writeValue(JsonGenerator generator, Object value) throws IOException {
+    compactWriter.writeValue(generator, value);
+  }
+
+  /** @return A compact generator over the stream, closing it does not close the stream */
+  public JsonGenerator createGenerator(OutputStream out) throws IOException {
+    JsonGenerator generator = compactMapper.createGenerator(out);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    return generator;
+  }
+
+  /** Convert a value (a tree, a map, a bean) to another type, no String in between */
+  public <T> T convertValue(Object value, Class<T> clazz) {
+    return mapper.convertValue(value, clazz);
+  }
+
   public <T> JsonNode convertObjectToTree(T obj) {
     return mapper.valueToTree(obj);
   }
@@ -5,47 +5,34 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import net.binhnguyen.lib.common.Record;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
 
+/**
+ * @Usage Record -> POJO conversion, through the cached mapping plan of {@link BeanMapper}.
+ *        Keys match fields by name or snake_case name, values are converted to the field type (numbers, dates, enums, ...). <br/>
+ *        Lenient like it always was: a value that can't be converted leaves its field null, and a class that can't be
+ *        instantiated (no no-arg constructor) gives null elements, where {@link BeanMapper#of(Class)} throws.
+ */
 @Slf4j
 @NoArgsConstructor
 public class RecordUtils {
 
   public static <T> T convertAsClazz(@NonNull Record singleton, @NonNull Class<T> clazz) {
-    final Field[] fields = clazz.getDeclaredFields();
-    final List<String> fieldNames = Arrays.stream(fields).map(Field::getName).toList();
-    T instance = null;
     try {
-      instance = clazz.getDeclaredConstructor().newInstance();
-      for (String fieldName : fieldNames) {
-        try {
-          // Get the field object from the class
-          Field field = clazz.getDeclaredField(fieldName);
-          field.setAccessible(true); // Make private fields accessible
-
-          // Retrieve the value from the record and set it on the class instance
-          Object value = singleton.get(fieldName);
-          if (Objects.nonNull(value)) field.set(instance, value);
-
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-          log.error("Error setting field value: {}", e.getMessage(), e);
-        }
-      }
+      return BeanMapper.of(clazz).map(singleton);
     } catch (Exception e) {
       log.error("Error creating class instance: {}", e.getMessage(), e);
+      return null;
     }
-
-    return instance;
   }
 
   public static <T> List<T> convertAsClazz(@NonNull List<Record> data, @NonNull Class<T> clazz) {
     List<T> results = new ArrayList<>();
     if (data.isEmpty()) return results;
-    data.stream().map(record -> convertAsClazz(record, clazz)).forEach(results::add);
+    for (Record record : data) {
+      results.add(convertAsClazz(record, clazz));
+    }
     return results;
   }
 }
@@ -0,0 +1,105 @@
+package net.binhnguyen.lib.sql;
+
+import net.binhnguyen.lib.common.Record;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/** Same package as {@link SqlMetrics}, for its package private {@link SqlMetrics#bucketOf(long)} */
+public class SqlMetricsUnitTest {
+
+  private static final long MILLIS = 1_000_000L;
+
+  @Test
+  @Tag("unit")
+  public void testBucketOf() {
+    Assertions.assertEquals(0, SqlMetrics.bucketOf(0));
+    Assertions.assertEquals(0, SqlMetrics.bucketOf(MILLIS - 1));
+    Assertions.assertEquals(1, SqlMetrics.bucketOf(MILLIS));
+    Assertions.assertEquals(2, SqlMetrics.bucketOf(2 * MILLIS));
+    Assertions.assertEquals(2, SqlMetrics.bucketOf(3 * MILLIS));
+    Assertions.assertEquals(3, SqlMetrics.bucketOf(4 * MILLIS));
+    Assertions.assertEquals(10, SqlMetrics.bucketOf(1023 * MILLIS));
+    Assertions.assertEquals(SqlMetrics.BUCKETS - 1, SqlMetrics.bucketOf(32_768 * MILLIS));
+    Assertions.assertEquals(SqlMetrics.BUCKETS - 1, SqlMetrics.bucketOf(Long.MAX_VALUE));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testPercentiles() {
+    SqlMetrics metrics = new SqlMetrics();
+    metrics.setSlowQueryThresholdMillis(Long.MAX_VALUE / MILLIS);
+    for (int i = 0; i < 99; i++) {
+      metrics.record("SELECT 1", MILLIS, 1, false, null);
+    }
+    metrics.record("SELECT 1", 100 * MILLIS, 1, true, null);
+
+    SqlMetrics.TemplateSnapshot snapshot = metrics.getTemplateMetrics("SELECT 1");
+    Assertions.assertEquals(100, snapshot.getExecutions());
+    Assertions.assertEquals(1, snapshot.getErrors());
+    Assertions.assertEquals(100, snapshot.getRows());
+    Assertions.assertEquals(100, snapshot.getMaxMillis());
+    Assertions.assertEquals(2, snapshot.getP50Millis());  // [1ms, 2ms)
+    Assertions.assertEquals(2, snapshot.getP99Millis());
+    Assertions.assertEquals(128, snapshot.getPercentileMillis(1.0)); // [64ms, 128ms)
+
+    // The last bucket has no upper bound, the max stands in for it
+    metrics.record("SELECT 2", 40_000 * MILLIS, 0, false, null);
+    Assertions.assertEquals(40_000, metrics.getTemplateMetrics("SELECT 2").getPercentileMillis(1.0));
+
+    SqlMetrics.TemplateSnapshot empty = new SqlMetrics.TemplateSnapshot("", 0, 0, 0, 0, 0, new long[SqlMetrics.BUCKETS]);
+    Assertions.assertEquals(0, empty.getP99Millis());
+    Assertions.assertEquals(0, empty.getAverageMillis());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testTemplateOverflow() {
+    SqlMetrics metrics = new SqlMetrics();
+    metrics.setSlowQueryThresholdMillis(Long.MAX_VALUE / MILLIS);
+    for (int i = 0; i < SqlMetrics.MAX_TEMPLATES; i++) {
+      metrics.record("SELECT " + i, MILLIS, 0, false, null);
+    }
+    metrics.record("SELECT 'new'", MILLIS, 0, false, null);
+    metrics.record("SELECT 'newer'", MILLIS, 0, false, null);
+    metrics.record("SELECT 0", MILLIS, 0, false, null);
+
+    Assertions.assertEquals(SqlMetrics.MAX_TEMPLATES + 1, metrics.getTemplateMetrics().size());
+    Assertions.assertNull(metrics.getTemplateMetrics("SELECT 'new'"));
+    Assertions.assertEquals(2, metrics.getTemplateMetrics(SqlMetrics.OTHER_TEMPLATES).getExecutions());
+    Assertions.assertEquals(2, metrics.getTemplateMetrics("SELECT 0").getExecutions());
+
+    metrics.reset();
+    Assertions.assertTrue(metrics.getTemplateMetrics().isEmpty());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testSlowQuerySamplingAndEviction() {
+    SqlMetrics metrics = new SqlMetrics();
+    metrics.setSlowQueryThresholdMillis(10);
+    metrics.setSlowQueryLogSize(2);
+    metrics.record("SELECT fast", 9 * MILLIS, 1, false, new Record("id", 0));
+    for (int i = 1; i <= 3; i++) {
+      metrics.record("SELECT slow", (10 + i) * MILLIS, i, false, new Record("id", i));
+    }
+
+    List<SqlMetrics.SlowQuery> slowQueries = metrics.getSlowQueries();
+    Assertions.assertEquals(2, slowQueries.size());
+    Assertions.assertEquals(12, slowQueries.get(0).getElapsedMillis()); // The oldest one was evicted
+    Assertions.assertEquals(13, slowQueries.get(1).getElapsedMillis());
+    Assertions.assertEquals(String.valueOf(new Record("id", 3)), slowQueries.get(1).getParams());
+
+    metrics.setSlowQuerySampleRate(0);
+    metrics.record("SELECT slow", 20 * MILLIS, 1, false, null);
+    Assertions.assertEquals(13, metrics.getSlowQueries().getLast().getElapsedMillis());
+
+    metrics.setEnabled(false);
+    metrics.setSlowQuerySampleRate(1);
+    metrics.record("SELECT slow", 30 * MILLIS, 1, false, null);
+    Assertions.assertEquals(13, metrics.getSlowQueries().getLast().getElapsedMillis());
+    Assertions.assertEquals(4, metrics.getTemplateMetrics("SELECT slow").getExecutions());
+  }
+}
@@ -0,0 +1,163 @@
+package net.binhnguyen.lib.test;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.utils.BeanMapper;
+import net.binhnguyen.lib.utils.RecordUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public class BeanMapperUnitTest {
+
+  public enum Status { ACTIVE, INACTIVE }
+
+  @Getter @Setter
+  public static class BaseBean {
+    private Long id;
+    private String code;
+  }
+
+  @Getter @Setter
+  public static class Employee extends BaseBean {
+    private String        code;
+    private int           age;
+    private Integer       level;
+    private BigDecimal    salary;
+    private boolean       manager;
+    private Status        status;
+    private LocalDateTime createdTime;
+    private LocalDate     birthDate;
+    private UUID          externalId;
+  }
+
+  @Getter
+  public static class Snapshot {
+    private final Long   id    = null;
+    private final String label = null;
+  }
+
+  public static class NoDefaultConstructor {
+    private final String name;
+
+    public NoDefaultConstructor(String name) {
+      this.name = name;
+    }
+  }
+
+  @Test
+  @Tag("unit")
+  public void testNumberConverters() {
+    Record record = new Record("id", "12");
+    record.put("age", 41.0);
+    record.put("level", 3L);
+    record.put("salary", 1500.25d);
+
+    Employee employee = BeanMapper.of(Employee.class).map(record);
+    Assertions.assertEquals(12L, employee.getId());
+    Assertions.assertEquals(41, employee.getAge());
+    Assertions.assertEquals(3, employee.getLevel());
+    Assertions.assertEquals(new BigDecimal("1500.25"), employee.getSalary());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testFractionalTextIsNotTruncated() {
+    Record record = new Record("id", "12.5");
+    record.put("age", "41.0");
+    record.put("level", "3.7");
+
+    Employee employee = BeanMapper.of(Employee.class).map(record);
+    Assertions.assertNull(employee.getId());
+    Assertions.assertEquals(41, employee.getAge());
+    Assertions.assertNull(employee.getLevel());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testFinalFields() {
+    Record record = new Record("id", "5");
+    record.put("label", "Frozen");
+
+    Snapshot snapshot = BeanMapper.of(Snapshot.class).map(record);
+    Assertions.assertEquals(5L, snapshot.getId());
+    Assertions.assertEquals("Frozen", snapshot.getLabel());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testBooleanEnumAndTemporalConverters() {
+    UUID externalId = UUID.randomUUID();
+    Record record = new Record("manager", "yes");
+    record.put("status", "INACTIVE");
+    record.put("createdTime", Timestamp.valueOf("2024-03-01 10:15:30"));
+    record.put("birthDate", "1990-05-17");
+    record.put("externalId", externalId.toString());
+
+    Employee employee = BeanMapper.of(Employee.class).map(record);
+    Assertions.assertTrue(employee.isManager());
+    Assertions.assertEquals(Status.INACTIVE, employee.getStatus());
+    Assertions.assertEquals(LocalDateTime.of(2024, 3, 1, 10, 15, 30), employee.getCreatedTime());
+    Assertions.assertEquals(LocalDate.of(1990, 5, 17), employee.getBirthDate());
+    Assertions.assertEquals(externalId, employee.getExternalId());
+
+    Employee fromNumbers = BeanMapper.of(Employee.class).map(new Record("status", 0));
+    Assertions.assertEquals(Status.ACTIVE, fromNumbers.getStatus());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testSnakeCaseAndInheritedFields() {
+    Record record = new Record("created_time", "2024-03-01 10:15:30");
+    record.put("birth_date", "1990-05-17");
+    record.put("id", 7);
+    record.put("code", "E07");
+
+    Employee employee = BeanMapper.of(Employee.class).map(record);
+    Assertions.assertEquals(LocalDateTime.of(2024, 3, 1, 10, 15, 30), employee.getCreatedTime());
+    Assertions.assertEquals(LocalDate.of(1990, 5, 17), employee.getBirthDate());
+    Assertions.assertEquals(7L, employee.getId());
+    Assertions.assertEquals("E07", employee.getCode());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testBlankAndInvalidValuesLeaveFieldsUntouched() {
+    Record record = new Record("level", " ");
+    record.put("salary", "not a number");
+    record.put("status", "UNKNOWN");
+    record.put("code", "E01");
+    record.put("unknown", "ignored");
+
+    Employee employee = BeanMapper.of(Employee.class).map(record);
+    Assertions.assertNull(employee.getLevel());
+    Assertions.assertNull(employee.getSalary());
+    Assertions.assertNull(employee.getStatus());
+    Assertions.assertEquals("E01", employee.getCode());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testRecordUtilsIsLenient() {
+    Record valid = new Record("id", 1L);
+    Record invalid = new Record("id", "abc");
+    List<Employee> employees = RecordUtils.convertAsClazz(List.of(valid, invalid), Employee.class);
+    Assertions.assertEquals(2, employees.size());
+    Assertions.assertEquals(1L, employees.get(0).getId());
+    Assertions.assertNull(employees.get(1).getId());
+
+    Assertions.assertThrows(RuntimeException.class, () -> BeanMapper.of(NoDefaultConstructor.class));
+    Assertions.assertNull(RecordUtils.convertAsClazz(new Record("name", "x"), NoDefaultConstructor.class));
+    List<NoDefaultConstructor> unmapped = RecordUtils.convertAsClazz(List.of(new Record("name", "x")), NoDefaultConstructor.class);
+    Assertions.assertEquals(1, unmapped.size());
+    Assertions.assertNull(unmapped.getFirst());
+  }
+}
@@ -0,0 +1,65 @@
+package net.binhnguyen.lib.test;
+
+import net.binhnguyen.lib.sql.CopyCsvCodec;
+import net.binhnguyen.lib.utils.DataSerializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class CopyCsvCodecUnitTest {
+
+  @Test
+  @Tag("unit")
+  public void testRoundTrip() {
+    Object[] values = {
+      1L, "plain", "", null, "comma, \"quotes\"\nand newline", new BigDecimal("1E+3"), true,
+      Thread.State.RUNNABLE, Timestamp.valueOf("2024-03-01 10:15:30.5"), new byte[] { 0x01, (byte) 0xAB }
+    };
+    StringBuilder line = new StringBuilder();
+    CopyCsvCodec.appendRow(line, values);
+    Assertions.assertTrue(line.toString().endsWith("\n"));
+
+    List<String> fields = CopyCsvCodec.parseRow(line.toString());
+    Assertions.assertEquals(
+      Arrays.asList(
+        "1", "plain", "", null, "comma, \"quotes\"\nand newline", "1000", "t",
+        "RUNNABLE", "2024-03-01 10:15:30.5", "\\x01ab"
+      ),
+      fields
+    );
+  }
+
+  @Test
+  @Tag("unit")
+  public void testNullAndEmptyStringStayDistinct() {
+    StringBuilder line = new StringBuilder();
+    CopyCsvCodec.appendRow(line, new Object[] { null, "", null });
+    Assertions.assertEquals(",\"\",\n", line.toString());
+    Assertions.assertEquals(Arrays.asList(null, "", null), CopyCsvCodec.parseRow(line.toString()));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testArraysAndMaps() {
+    StringBuilder line = new StringBuilder();
+    CopyCsvCodec.appendRow(line, new Object[] { Arrays.asList("a", null, "b\"c"), new Long[] { 1L, 2L }, Map.of("k", 1) });
+
+    List<String> fields = CopyCsvCodec.parseRow(line.toString());
+    Assertions.assertEquals(List.of("{\"a\",NULL,\"b\\\"c\"}", "{\"1\",\"2\"}"), fields.subList(0, 2));
+    Assertions.assertEquals(Map.of("k", 1), DataSerializer.JSON.fromString(fields.get(2), Map.class));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testParseCopyOutput() {
+    Assertions.assertEquals(Arrays.asList("1", null, "x,y", ""), CopyCsvCodec.parseRow("1,,\"x,y\",\"\"\r\n"));
+    Assertions.assertEquals(Arrays.asList(null, null), CopyCsvCodec.parseRow(","));
+    Assertions.assertEquals(Arrays.asList((String) null), CopyCsvCodec.parseRow(""));
+  }
+}
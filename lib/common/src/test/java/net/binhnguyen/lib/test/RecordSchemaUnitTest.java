@@ -0,0 +1,62 @@
+package net.binhnguyen.lib.test;
+
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.common.RecordSchema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+public class RecordSchemaUnitTest {
+
+  private static final String[] NAMES = { "id", "code", "amount", "code" };
+  private static final int[]    TYPES = { Types.BIGINT, Types.VARCHAR, Types.INTEGER, Types.VARCHAR };
+  private static final Object[] ROW   = { 7L, "E07", null, "E08" };
+
+  @Test
+  @Tag("unit")
+  public void testReadRecordMatchesFlatRow() throws SQLException {
+    ResultSet resultSet = resultSet();
+    RecordSchema schema = RecordSchema.of(resultSet.getMetaData());
+
+    Record record = schema.readRecord(resultSet);
+    Assertions.assertEquals(schema.toRecord(schema.readRow(resultSet)), record);
+    Assertions.assertEquals(7L, record.get("id"));
+    Assertions.assertEquals("E08", record.get("code")); // A duplicated name keeps the last column, like Record#put
+    Assertions.assertTrue(record.containsKey("amount"));
+    Assertions.assertNull(record.get("amount"));
+  }
+
+  /** One row positioned result set, typed getters return the Java default and set wasNull like the driver does */
+  private static ResultSet resultSet() {
+    ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+      ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class }, (proxy, method, args) -> switch (method.getName()) {
+        case "getColumnCount" -> NAMES.length;
+        case "getColumnName" -> NAMES[(int) args[0] - 1];
+        case "getColumnType" -> TYPES[(int) args[0] - 1];
+        case "getColumnTypeName" -> "";
+        default -> throw new UnsupportedOperationException(method.getName());
+      }
+    );
+    boolean[] wasNull = new boolean[1];
+    return (ResultSet) Proxy.newProxyInstance(
+      ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+        if ("getMetaData".equals(method.getName())) return metaData;
+        if ("wasNull".equals(method.getName())) return wasNull[0];
+        Object value = ROW[(int) args[0] - 1];
+        wasNull[0] = value == null;
+        return switch (method.getName()) {
+          case "getLong" -> value == null ? 0L : value;
+          case "getInt" -> value == null ? 0 : value;
+          case "getString", "getObject" -> value;
+          default -> throw new UnsupportedOperationException(method.getName());
+        };
+      }
+    );
+  }
+}
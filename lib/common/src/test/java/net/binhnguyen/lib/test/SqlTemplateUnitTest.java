@@ -0,0 +1,171 @@
+package net.binhnguyen.lib.test;
+
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.sql.SqlTemplate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.stream.LongStream;
+
+public class SqlTemplateUnitTest {
+
+  @Test
+  @Tag("unit")
+  public void testNamedParameters() {
+    SqlTemplate template = SqlTemplate.compile("SELECT * FROM employee WHERE id = :id AND code = :code OR parent_id = :id");
+    Assertions.assertEquals(List.of("id", "code", "id"), template.getParameterNames());
+    Assertions.assertEquals(Set.of("id", "code"), template.getDistinctParameterNames());
+
+    SqlTemplate.BoundSql bound = template.bind(record("id", 1L, "code", "E01"));
+    Assertions.assertEquals("SELECT * FROM employee WHERE id = ? AND code = ? OR parent_id = $1", bound.getSql());
+    Assertions.assertEquals(List.of(1L, "E01"), bound.getValues());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testOptionalFilterBindsOneParameter() {
+    SqlTemplate template = SqlTemplate.compile(
+      "SELECT * FROM employee WHERE id IN (:ids) AND (:code IS NULL OR code = :code) AND (:status IS NULL OR status = :status)"
+    );
+    Record keyValues = record("ids", List.of(1L, 2L), "code", null);
+    keyValues.put("status", "ACTIVE");
+    SqlTemplate.BoundSql bound = template.bind(keyValues);
+    Assertions.assertEquals(
+      "SELECT * FROM employee WHERE id IN (?, ?) AND (? IS NULL OR code = $3) AND (? IS NULL OR status = $4)",
+      bound.getSql()
+    );
+    Assertions.assertEquals(Arrays.asList(1L, 2L, null, "ACTIVE"), bound.getValues());
+
+    // reWriteBatchedInserts renumbers the slots of an INSERT, every use keeps its own
+    SqlTemplate insert = SqlTemplate.compile("INSERT INTO audit (created_by, modified_by) VALUES (:user, :user)");
+    Assertions.assertEquals("INSERT INTO audit (created_by, modified_by) VALUES (?, ?)", insert.bind(new Record("user", "admin")).getSql());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testQuotesCastsAndQuestionMarks() {
+    SqlTemplate template = SqlTemplate.compile(
+      "SELECT ':notKey', \"col:name\", data::jsonb ? 'tag', $$ :inBody $$ -- :inComment\n" +
+      "FROM t /* :inBlock */ WHERE created::date = :day AND note = 'it''s :quoted'"
+    );
+    Assertions.assertEquals(List.of("day"), template.getParameterNames());
+
+    SqlTemplate.BoundSql bound = template.bind(new Record("day", "2024-01-01"));
+    Assertions.assertEquals(
+      "SELECT ':notKey', \"col:name\", data::jsonb ?? 'tag', $$ :inBody $$ -- :inComment\n" +
+      "FROM t /* :inBlock */ WHERE created::date = ? AND note = 'it''s :quoted'",
+      bound.getSql()
+    );
+  }
+
+  @Test
+  @Tag("unit")
+  public void testMissingAndUnusedKeys() {
+    SqlTemplate template = SqlTemplate.compile("SELECT * FROM t WHERE a = :a AND b = :b");
+    Assertions.assertNull(template.bind(record("a", 1, "c", 2)), "A key the template does not use is rejected");
+    Assertions.assertThrows(RuntimeException.class, () -> template.bind(new Record("a", 1)));
+
+    SqlTemplate.BoundSql bound = template.bind(record("a", null, "b", 2));
+    Assertions.assertEquals(Arrays.asList(null, 2), bound.getValues());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testCollections() {
+    SqlTemplate template = SqlTemplate.compile("SELECT * FROM t WHERE id IN (:ids)");
+
+    SqlTemplate.BoundSql empty = template.bind(new Record("ids", List.of()));
+    Assertions.assertEquals("SELECT * FROM t WHERE id IN (NULL)", empty.getSql());
+    Assertions.assertTrue(empty.getValues().isEmpty());
+
+    // 3 values are padded to 4 slots with the last one
+    SqlTemplate.BoundSql small = template.bind(new Record("ids", new Long[] { 1L, 2L, 3L }));
+    Assertions.assertEquals("SELECT * FROM t WHERE id IN (?, ?, ?, ?)", small.getSql());
+    Assertions.assertEquals(List.of(1L, 2L, 3L, 3L), small.getValues());
+
+    List<Long> threshold = LongStream.range(0, SqlTemplate.ARRAY_BIND_THRESHOLD).boxed().toList();
+    Assertions.assertEquals(SqlTemplate.ARRAY_BIND_THRESHOLD, template.bind(new Record("ids", threshold)).getValues().size());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testLargeCollectionBindsOneArray() throws SQLException {
+    List<Long> ids = LongStream.range(0, 50_000).boxed().toList();
+    SqlTemplate template = SqlTemplate.compile(
+      "SELECT id FROM parent WHERE id IN (:ids) UNION ALL SELECT id FROM child WHERE parent_id NOT IN ( :ids )"
+    );
+    SqlTemplate.BoundSql bound = template.bind(new Record("ids", ids));
+    Assertions.assertEquals(
+      "SELECT id FROM parent WHERE id = ANY(?) UNION ALL SELECT id FROM child WHERE parent_id <> ALL(? )",
+      bound.getSql()
+    );
+    Assertions.assertEquals(2, bound.getValues().size());
+
+    List<Object[]> calls = new ArrayList<>();
+    bound.bindTo(recordingStatement(calls));
+    Assertions.assertEquals(2, calls.size());
+    Assertions.assertEquals(1, calls.get(0)[0]);
+    Assertions.assertEquals(Types.OTHER, calls.get(0)[2], "Untyped, the server takes the type of the column");
+    String literal = (String) calls.get(0)[1];
+    Assertions.assertTrue(literal.startsWith("{\"0\",\"1\",") && literal.endsWith(",\"49999\"}"));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testArrayLiteral() {
+    List<Object> statuses = new ArrayList<>();
+    for (int i = 0; i <= SqlTemplate.ARRAY_BIND_THRESHOLD; i++) statuses.add(i % 2 == 0 ? Thread.State.NEW : null);
+    statuses.set(1, "it's \"quoted\"");
+    SqlTemplate.BoundSql bound = SqlTemplate.compile("SELECT * FROM t WHERE status IN (:statuses)").bind(new Record("statuses", statuses));
+    Assertions.assertEquals("SELECT * FROM t WHERE status = ANY(?)", bound.getSql());
+    String literal = ((SqlTemplate.ArrayValue) bound.getValues().getFirst()).toLiteral();
+    Assertions.assertTrue(literal.startsWith("{\"NEW\",\"it's \\\"quoted\\\"\",\"NEW\",NULL,"), literal);
+  }
+
+  @Test
+  @Tag("unit")
+  public void testLargeCollectionOutsideInListIsExpanded() {
+    List<Long> ids = LongStream.range(0, SqlTemplate.ARRAY_BIND_THRESHOLD + 1).boxed().toList();
+    SqlTemplate.BoundSql values = SqlTemplate.compile("INSERT INTO t (id) SELECT * FROM (VALUES (:ids)) v").bind(new Record("ids", ids));
+    Assertions.assertFalse(values.getSql().contains("ANY"));
+    Assertions.assertEquals(2048, values.getValues().size());
+
+    SqlTemplate.BoundSql withMore = SqlTemplate.compile("SELECT * FROM t WHERE id IN (:ids, 0)").bind(new Record("ids", ids));
+    Assertions.assertTrue(withMore.getSql().startsWith("SELECT * FROM t WHERE id IN (?, ?"));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testTooManyParameters() {
+    StringJoiner sql = new StringJoiner(" OR ", "SELECT * FROM t WHERE ", "");
+    Record keyValues = new Record();
+    for (int i = 0; i < 40; i++) {
+      sql.add("c" + i + " IN (:ids" + i + ")");
+      keyValues.put("ids" + i, LongStream.range(0, SqlTemplate.ARRAY_BIND_THRESHOLD).boxed().toList());
+    }
+    SqlTemplate template = SqlTemplate.compile(sql.toString());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> template.bind(keyValues));
+  }
+
+  private static Record record(String key, Object value, String otherKey, Object otherValue) {
+    Record record = new Record(key, value);
+    record.put(otherKey, otherValue);
+    return record;
+  }
+
+  /** A statement recording setObject, nothing else is expected */
+  private static PreparedStatement recordingStatement(List<Object[]> calls) {
+    ClassLoader loader = SqlTemplateUnitTest.class.getClassLoader();
+    return (PreparedStatement) Proxy.newProxyInstance(loader, new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+      if (!method.getName().equals("setObject")) throw new UnsupportedOperationException(method.getName());
+      calls.add(args);
+      return null;
+    });
+  }
+}
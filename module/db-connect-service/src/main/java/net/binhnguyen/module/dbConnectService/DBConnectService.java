@@ -1,39 +1,551 @@
 package net.binhnguyen.module.dbConnectService;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.zaxxer.hikari.HikariDataSource;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.common.BaseEntity;
 import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.common.RecordSchema;
+import net.binhnguyen.lib.common.RecordSet;
+import net.binhnguyen.lib.sql.SqlMetrics;
 import net.binhnguyen.lib.utils.DBConnectUtils;
+import net.binhnguyen.lib.utils.DBConnectUtils.BatchCommitPolicy;
+import net.binhnguyen.lib.utils.DataSerializer;
 import net.binhnguyen.module.deletegraph.DeleteGraphBuilder;
+import net.binhnguyen.module.deletegraph.DeleteGraphExecutionMode;
+import net.binhnguyen.module.deletegraph.DeleteGraphExecutor;
+import net.binhnguyen.module.deletegraph.DeleteGraphExplain;
+import net.binhnguyen.module.deletegraph.DeleteGraphOptions;
+import net.binhnguyen.module.deletegraph.DeleteGraphProgress;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
-import java.util.List;
-import java.util.Objects;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Every call leases its own connection from the pool and returns it when done, so concurrent requests
+ *        don't share a connection or a transaction. <br/>
+ *        Use {@link #inTransaction(Function)} to run several calls as one unit of work,
+ *        calls made on the same thread inside the callback join that transaction. <br/>
+ *        Statements are prepared server-side by the Postgres driver, cached per physical pooled connection, see
+ *        `dbconnect.statement.prepare-threshold` and `dbconnect.statement.cache-queries`.
+ */
 @Component @Slf4j
 public class DBConnectService {
 
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+  public static final int DEFAULT_ASYNC_CONCURRENCY = 10;
+
   @Autowired
   private DataSource dataSource;
 
-  private DBConnectUtils connectUtils;
+  /** Opt-in result cache for {@link #searchCached(String, Record)} */
+  @Value("${dbconnect.query-cache.enabled:false}")
+  private boolean queryCacheEnabled;
+
+  @Value("${dbconnect.query-cache.ttl-ms:30000}")
+  private long queryCacheTtlMillis;
+
+  @Value("${dbconnect.query-cache.max-entries:1000}")
+  private int queryCacheMaxEntries;
+
+  @Value("${dbconnect.query-cache.max-rows:100000}")
+  private long queryCacheMaxRows;
+
+  private QueryResultCache queryCache;
+
+  /** Max async queries running at once, 0 means the connection pool size */
+  @Value("${dbconnect.async.max-concurrency:0}")
+  private int asyncMaxConcurrency;
+
+  private ExecutorService asyncExecutor;
+  private Semaphore       asyncPermits;
+
+  @Value("${dbconnect.metrics.enabled:true}")
+  private boolean metricsEnabled;
+
+  /** Executions at least this slow are candidates for the slow query log */
+  @Value("${dbconnect.metrics.slow-query-threshold-ms:500}")
+  private long slowQueryThresholdMillis;
+
+  /** Fraction of the slow executions kept in the slow query log */
+  @Value("${dbconnect.metrics.slow-query-sample-rate:1.0}")
+  private double slowQuerySampleRate;
+
+  @Value("${dbconnect.metrics.slow-query-log-size:200}")
+  private int slowQueryLogSize;
+
+  /** Executions of a query on a pooled connection before the driver prepares it server-side, 0 turns it off */
+  @Value("${dbconnect.statement.prepare-threshold:5}")
+  private int prepareThreshold;
+
+  /** Prepared queries the driver keeps per pooled connection */
+  @Value("${dbconnect.statement.cache-queries:256}")
+  private int preparedStatementCacheQueries;
+
+  private final ThreadLocal<DBConnectUtils> currentTransaction = new ThreadLocal<>();
+  /** Tables written by the current transaction, their cached results are dropped again once it ends */
+  private final ThreadLocal<Set<String>>    writtenTables      = ThreadLocal.withInitial(HashSet::new);
 
   @PostConstruct
   public void init() {
-    this.connectUtils = new DBConnectUtils(dataSource);
+    configureStatementCache();
+    if (queryCacheEnabled) {
+      this.queryCache = new QueryResultCache(queryCacheTtlMillis, queryCacheMaxEntries, queryCacheMaxRows);
+      log.info("Query result cache enabled: ttl {}ms, {} entries, {} rows", queryCacheTtlMillis, queryCacheMaxEntries, queryCacheMaxRows);
+    }
+
+    final int concurrency = asyncMaxConcurrency > 0 ? asyncMaxConcurrency : resolvePoolSize();
+    this.asyncPermits  = new Semaphore(concurrency, true);
+    this.asyncExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    log.info("Async queries limited to {} at once", concurrency);
+
+    SqlMetrics metrics = SqlMetrics.getInstance();
+    metrics.setEnabled(metricsEnabled);
+    metrics.setSlowQueryThresholdMillis(slowQueryThresholdMillis);
+    metrics.setSlowQuerySampleRate(slowQuerySampleRate);
+    metrics.setSlowQueryLogSize(slowQueryLogSize);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (Objects.nonNull(asyncExecutor)) asyncExecutor.shutdown();
+  }
+
+  /**
+   * Hand the statement cache settings to the driver of a Hikari pool that hasn't started yet.
+   * Settings already in the JDBC url or the pool's data source properties win.
+   */
+  private void configureStatementCache() {
+    try {
+      if (!dataSource.isWrapperFor(HikariDataSource.class)) return;
+      HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+      if (hikari.isRunning()) {
+        log.info("Connection pool already started, keeping its statement cache settings");
+        return;
+      }
+      String url = Objects.toString(hikari.getJdbcUrl(), "");
+      Properties properties = hikari.getDataSourceProperties();
+      if (!url.contains("prepareThreshold=") && !properties.containsKey("prepareThreshold")) {
+        hikari.addDataSourceProperty("prepareThreshold", prepareThreshold);
+      }
+      if (!url.contains("preparedStatementCacheQueries=") && !properties.containsKey("preparedStatementCacheQueries")) {
+        hikari.addDataSourceProperty("preparedStatementCacheQueries", preparedStatementCacheQueries);
+      }
+    } catch (SQLException | IllegalStateException e) {
+      log.warn("Can't configure the prepared statement cache: {}", e.getMessage());
+    }
+  }
+
+  private int resolvePoolSize() {
+    try {
+      if (dataSource.isWrapperFor(HikariDataSource.class)) {
+        return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+      }
+    } catch (SQLException e) {
+      log.warn("Can't read the connection pool size: {}", e.getMessage());
+    }
+    return DEFAULT_ASYNC_CONCURRENCY;
+  }
+
+  /**
+   * Run {@code work} on a virtual thread with its own connection, at most `dbconnect.async.max-concurrency`
+   * (default: the pool size) at once. Extra calls wait for a permit on their virtual thread, not on the pool. <br/>
+   * The work never joins the caller's transaction, it runs on another thread.
+   */
+  public <T> CompletableFuture<T> supplyAsync(Function<DBConnectUtils, T> work) {
+    return runAsync(() -> inTransaction(work));
+  }
+
+  /**
+   * {@link #search(String, Record)} on a virtual thread. Fan out independent searches and join them. <br/>
+   * Read-only like {@link #withConnection(Function)}: the read transaction is rolled back, not committed.
+   */
+  public CompletableFuture<List<Record>> searchAsync(String SEARCH_QUERY, Record sqlArgs) {
+    return runAsync(() -> withConnection(connectUtils -> connectUtils.execute(SEARCH_QUERY, sqlArgs)));
+  }
+
+  /** Run a template returning rows (e.g. INSERT ... RETURNING) on a virtual thread, committed when it succeeds */
+  public CompletableFuture<List<Record>> executeAsync(String SQL_QUERY, Record sqlArgs) {
+    return supplyAsync(connectUtils -> {
+      List<Record> results = connectUtils.execute(SQL_QUERY, sqlArgs);
+      invalidateTablesOf(SQL_QUERY);
+      return results;
+    });
+  }
+
+  private <T> CompletableFuture<T> runAsync(Supplier<T> leased) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        asyncPermits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CompletionException(e);
+      }
+      try {
+        return leased.get();
+      } finally {
+        asyncPermits.release();
+      }
+    }, asyncExecutor);
+  }
+
+  /**
+   * Lease a connection, run {@code work}, then commit. Rollback if {@code work} throws. The connection is always returned.
+   * If the current thread is already inside a transaction, {@code work} joins it instead.
+   */
+  public <T> T inTransaction(Function<DBConnectUtils, T> work) {
+    final DBConnectUtils joined = currentTransaction.get();
+    if (Objects.nonNull(joined)) return work.apply(joined);
+
+    final DBConnectUtils connectUtils = new DBConnectUtils(dataSource);
+    currentTransaction.set(connectUtils);
+    try {
+      T result = work.apply(connectUtils);
+      connectUtils.commit();
+      return result;
+    } catch (RuntimeException e) {
+      rollbackQuietly(connectUtils);
+      throw e;
+    } finally {
+      currentTransaction.remove();
+      connectUtils.close();
+      Set<String> tables = writtenTables.get();
+      writtenTables.remove();
+      if (Objects.nonNull(queryCache)) queryCache.invalidateTables(tables);
+    }
+  }
+
+  public void runInTransaction(Consumer<DBConnectUtils> work) {
+    inTransaction(connectUtils -> {
+      work.accept(connectUtils);
+      return null;
+    });
+  }
+
+  /**
+   * Lease a connection for read-only work. Nothing is committed, the read transaction is rolled back before
+   * the connection goes back to the pool. Joins the current transaction if there is one.
+   */
+  public <T> T withConnection(Function<DBConnectUtils, T> work) {
+    final DBConnectUtils joined = currentTransaction.get();
+    if (Objects.nonNull(joined)) return work.apply(joined);
+
+    try (DBConnectUtils connectUtils = new DBConnectUtils(dataSource)) {
+      try {
+        return work.apply(connectUtils);
+      } finally {
+        rollbackQuietly(connectUtils);
+      }
+    }
+  }
+
+  public boolean isInTransaction() {
+    return Objects.nonNull(currentTransaction.get());
   }
 
   public List<Record> search(String SEARCH_QUERY, Record sqlArgs) {
-    return connectUtils.execute(SEARCH_QUERY, sqlArgs);
+    return withConnection(connectUtils -> connectUtils.execute(SEARCH_QUERY, sqlArgs));
+  }
+
+  /** Search with each row mapped straight to {@code clazz}, see {@link DBConnectUtils#query(String, Record, Class)} */
+  public <T> List<T> search(String SEARCH_QUERY, Record sqlArgs, Class<T> clazz) {
+    return withConnection(connectUtils -> connectUtils.query(SEARCH_QUERY, sqlArgs, clazz));
+  }
+
+  /**
+   * Same as {@link #search(String, Record)}, served from the query result cache when it is enabled
+   * (`dbconnect.query-cache.enabled`). Only use it for data that may be up to `dbconnect.query-cache.ttl-ms` old
+   * when it is written outside of this service. Inside a transaction, or if the tables of the template can't be parsed,
+   * the cache is bypassed.
+   */
+  public List<Record> searchCached(String SEARCH_QUERY, Record sqlArgs) {
+    if (Objects.isNull(queryCache) || isInTransaction() || !queryCache.isCacheable(SEARCH_QUERY)) return search(SEARCH_QUERY, sqlArgs);
+
+    QueryResultCache.CacheKey key = QueryResultCache.CacheKey.of(SEARCH_QUERY, sqlArgs);
+    List<Record> cached = queryCache.get(key);
+    if (Objects.nonNull(cached)) return cached;
+
+    Map<String, Long> versions = queryCache.snapshotVersions(key);
+    List<Record> results = search(SEARCH_QUERY, sqlArgs);
+    queryCache.put(key, results, versions);
+    return results;
+  }
+
+  /** @return Query result cache counters, or null if the cache is disabled */
+  public QueryResultCache.Stats getQueryCacheStats() {
+    return Objects.isNull(queryCache) ? null : queryCache.getStats();
+  }
+
+  public void clearQueryCache() {
+    if (Objects.nonNull(queryCache)) queryCache.clear();
+  }
+
+  /**
+   * Drop cached results reading any of {@code tables}. Writes made through this service call it for you,
+   * call it after writing through a {@link DBConnectUtils} obtained from {@link #inTransaction(Function)}.
+   */
+  public void invalidateTables(Collection<String> tables) {
+    if (Objects.isNull(queryCache)) return;
+    queryCache.invalidateTables(tables);
+    if (isInTransaction()) writtenTables.get().addAll(tables);
   }
 
+  /**
+   * One page of a search, using keyset pagination over the template: ordering, filters and the page limit
+   * are applied by the database, and the next page seeks from the last row of this one instead of using OFFSET.
+   * @param pageRequest Sort, filters, limit and the continuation token of the previous page
+   * @return The rows of the page, plus the token of the next page (null on the last one)
+   */
+  public SearchPage searchPage(String SEARCH_QUERY, Record sqlArgs, SearchPageRequest pageRequest) {
+    return withConnection(connectUtils -> {
+      Record params = new Record();
+      if (Objects.nonNull(sqlArgs)) params.putAll(sqlArgs);
+      final String PAGE_QUERY = KeysetPagination.buildPageQuery(SEARCH_QUERY, pageRequest, params);
+      List<Record> rows = connectUtils.execute(PAGE_QUERY, params);
+
+      final int limit = KeysetPagination.clampLimit(pageRequest.getLimit());
+      final boolean hasMore = rows.size() > limit;
+      String continuationToken = null;
+      if (hasMore) {
+        rows = new ArrayList<>(rows.subList(0, limit));
+        Record last = rows.getLast();
+        if (!last.containsKey(pageRequest.getKeyField())) {
+          throw new IllegalArgumentException("Search result has no key column " + pageRequest.getKeyField());
+        }
+        Object sortValue = Objects.isNull(pageRequest.getSortField()) ? null : last.get(pageRequest.getSortField());
+        continuationToken = KeysetPagination.encodeToken(sortValue, last.get(pageRequest.getKeyField()));
+      }
+
+      SearchPage page = new SearchPage(rows, hasMore, continuationToken);
+      if (pageRequest.isWithEstimatedTotal()) page.setEstimatedTotal(estimateTotal(connectUtils, SEARCH_QUERY, sqlArgs, pageRequest));
+      return page;
+    });
+  }
+
+  /** Planner estimate of the filtered row count, from EXPLAIN. Cheap, but only as good as the table statistics */
+  private Long estimateTotal(DBConnectUtils connectUtils, String SEARCH_QUERY, Record sqlArgs, SearchPageRequest pageRequest) {
+    Record params = new Record();
+    if (Objects.nonNull(sqlArgs)) params.putAll(sqlArgs);
+    final String EXPLAIN_QUERY = "EXPLAIN (FORMAT JSON) " + KeysetPagination.buildFilteredQuery(SEARCH_QUERY, pageRequest, params);
+    List<Record> plan = params.isEmpty() ? connectUtils.executeQuery(EXPLAIN_QUERY) : connectUtils.execute(EXPLAIN_QUERY, params);
+    if (plan.isEmpty()) return null;
+
+    Object json = plan.getFirst().values().iterator().next();
+    JsonNode root = DataSerializer.JSON.fromString(String.valueOf(json), JsonNode.class);
+    JsonNode rows = root.path(0).path("Plan").path("Plan Rows");
+    return rows.isMissingNode() ? null : rows.asLong();
+  }
+
+  /**
+   * Same rows as {@link #search(String, Record)}, stored as flat arrays that share one column schema.
+   * Rows are {@code Map} views, so the result serializes to the same JSON.
+   */
+  public RecordSet searchRecordSet(String SEARCH_QUERY, Record sqlArgs) {
+    RecordSet result = withConnection(connectUtils -> connectUtils.query(SEARCH_QUERY, sqlArgs));
+    if (Objects.isNull(result)) return new RecordSet(RecordSchema.EMPTY);
+    return result;
+  }
+
+  /**
+   * Stream a large result with a forward-only cursor, {@link #DEFAULT_FETCH_SIZE} rows per round trip.
+   * The stream must be closed, e.g. {@code try (Stream<Record> rows = service.stream(...)) { ... }}
+   */
+  public Stream<Record> stream(String SEARCH_QUERY, Record sqlArgs) {
+    return stream(SEARCH_QUERY, sqlArgs, DEFAULT_FETCH_SIZE);
+  }
+
+  /** Outside a transaction, the stream keeps its own leased connection until it is closed */
+  public Stream<Record> stream(String SEARCH_QUERY, Record sqlArgs, int fetchSize) {
+    final DBConnectUtils joined = currentTransaction.get();
+    if (Objects.nonNull(joined)) return joined.stream(SEARCH_QUERY, sqlArgs, fetchSize);
+
+    final DBConnectUtils connectUtils = new DBConnectUtils(dataSource);
+    final Runnable release = () -> {
+      rollbackQuietly(connectUtils);
+      connectUtils.close();
+    };
+    try {
+      return connectUtils.stream(SEARCH_QUERY, sqlArgs, fetchSize).onClose(release);
+    } catch (RuntimeException e) {
+      release.run();
+      throw e;
+    }
+  }
+
+  /** @return Number of rows passed to {@code rowCallback} */
+  public long forEach(String SEARCH_QUERY, Record sqlArgs, Consumer<Record> rowCallback) {
+    return withConnection(connectUtils -> connectUtils.forEach(SEARCH_QUERY, sqlArgs, DEFAULT_FETCH_SIZE, rowCallback));
+  }
+
+  /** Run an INSERT / UPDATE / DELETE template and commit it */
+  public int executeUpdate(String SQL_QUERY, Record sqlArgs) {
+    return inTransaction(connectUtils -> {
+      int count = connectUtils.executeUpdate(SQL_QUERY, sqlArgs);
+      invalidateTablesOf(SQL_QUERY);
+      return count;
+    });
+  }
+
+  /** Write all rows in batches of {@link DBConnectUtils#DEFAULT_BATCH_SIZE}, in a single transaction */
+  public int executeBatch(String SQL_TEMPLATE, List<Record> rows) {
+    return executeBatch(SQL_TEMPLATE, rows, DBConnectUtils.DEFAULT_BATCH_SIZE, BatchCommitPolicy.NONE);
+  }
+
+  /**
+   * @see DBConnectUtils#executeBatch(String, List, int, BatchCommitPolicy)
+   * Beware that {@link BatchCommitPolicy#PER_BATCH} also commits the work of an enclosing transaction.
+   */
+  public int executeBatch(String SQL_TEMPLATE, List<Record> rows, int batchSize, BatchCommitPolicy commitPolicy) {
+    return inTransaction(connectUtils -> {
+      int count = connectUtils.executeBatch(SQL_TEMPLATE, rows, batchSize, commitPolicy);
+      invalidateTablesOf(SQL_TEMPLATE);
+      return count;
+    });
+  }
+
+  /**
+   * Bulk load with Postgres COPY, in one transaction.
+   * @see DBConnectUtils#copyIn(String, Map, Iterator)
+   */
+  public long copyIn(String table, Map<String, String> columnMapping, Iterator<Record> rows) {
+    return inTransaction(connectUtils -> {
+      long count = connectUtils.copyIn(table, columnMapping, rows);
+      invalidateTables(List.of(table));
+      return count;
+    });
+  }
+
+  public long copyIn(String table, List<String> columns, List<Record> rows) {
+    return inTransaction(connectUtils -> {
+      long count = connectUtils.copyIn(table, columns, rows);
+      invalidateTables(List.of(table));
+      return count;
+    });
+  }
+
+  /** @see DBConnectUtils#copyOut(String, Consumer) */
+  public long copyOut(String SQL_QUERY, Consumer<Record> rowConsumer) {
+    return withConnection(connectUtils -> connectUtils.copyOut(SQL_QUERY, rowConsumer));
+  }
+
+  /** Delete {@code ids} and their delete graph in one transaction */
   public int deleteByIds(Class<?> clazz, List<Long> ids) {
-    DeleteGraphBuilder deleteGraphBuilder = new DeleteGraphBuilder(this.connectUtils, clazz, ids);
-    int target = deleteGraphBuilder.doDelete();
-    if (ids.size() != target) throw new RuntimeException("There were some problems while deleting");
-    else return target;
+    return deleteByIds(clazz, ids, DeleteGraphOptions.atomic());
+  }
+
+  /**
+   * ATOMIC runs in (or joins) a transaction like {@link #inTransaction(Function)}.
+   * PER_NODE and CHUNKED commit as they go, so they can't run inside a transaction: they would commit the caller's work too.
+   * A parallel PER_NODE delete leases up to {@code parallelism - 1} extra connections from the options' data source, or else
+   * from this service's pool. {@code options} is not modified.
+   * Use {@link DeleteGraphOptions#deadlockSafe(boolean)} when several callers delete overlapping graphs at once.
+   * @return Number of deleted ids
+   * @see DeleteGraphExecutionMode
+   */
+  public int deleteByIds(Class<?> clazz, List<Long> ids, DeleteGraphOptions options) {
+    return (int) deleteByIds(clazz, new DeleteGraphProgress(ids), options).getDeletedIds();
+  }
+
+  /** Delete the remaining ids of {@code progress}, e.g. to resume a chunked delete that failed */
+  public DeleteGraphProgress deleteByIds(Class<?> clazz, DeleteGraphProgress progress, DeleteGraphOptions options) {
+    if (DeleteGraphExecutionMode.PER_NODE.equals(options.getMode()) && isInTransaction()) {
+      throw new IllegalStateException("A per node delete commits every node, it can't join the current transaction");
+    }
+    if (!DeleteGraphExecutionMode.CHUNKED.equals(options.getMode())) {
+      // A joined transaction holds the caller's work too, it can't be rolled back to retry a deadlock
+      final boolean ownsTransaction = !isInTransaction();
+      return inTransaction(connectUtils -> {
+        try {
+          DeleteGraphExecutor.execute(connectUtils, clazz, progress, options, ownsTransaction, dataSource);
+          return progress;
+        } finally {
+          invalidateTables(progress.getTables());
+        }
+      });
+    }
+
+    if (isInTransaction()) throw new IllegalStateException("A chunked delete commits on its own, it can't join the current transaction");
+    try (DBConnectUtils connectUtils = new DBConnectUtils(dataSource)) {
+      DeleteGraphExecutor.execute(connectUtils, clazz, progress, options);
+      return progress;
+    } finally {
+      invalidateTables(progress.getTables());
+    }
+  }
+
+  /**
+   * Mark {@code ids} and their whole delete graph as ARCHIVED in one transaction, instead of deleting them.
+   * @return Number of archived rows, all tables together
+   * @see DeleteGraphBuilder#doArchive(BaseEntity.StorageState)
+   */
+  public int archiveByIds(Class<?> clazz, List<Long> ids) {
+    return updateStorageState(clazz, ids, BaseEntity.StorageState.ARCHIVED);
+  }
+
+  /** Undo {@link #archiveByIds(Class, List)}: mark {@code ids} and their graph ACTIVE again */
+  public int restoreByIds(Class<?> clazz, List<Long> ids) {
+    return updateStorageState(clazz, ids, BaseEntity.StorageState.ACTIVE);
+  }
+
+  private int updateStorageState(Class<?> clazz, List<Long> ids, BaseEntity.StorageState state) {
+    if (!BaseEntity.class.isAssignableFrom(clazz)) throw new IllegalArgumentException(clazz.getName() + " has no storage state");
+    return inTransaction(connectUtils -> {
+      DeleteGraphBuilder graph = new DeleteGraphBuilder(connectUtils, clazz, ids);
+      int count = graph.doArchive(state);
+      invalidateTables(graph.collectTables(new HashSet<>()));
+      return count;
+    });
+  }
+
+  /**
+   * Plan the delete graph of {@code ids} without deleting anything, see {@link DeleteGraphBuilder#explain(boolean)}.
+   * With {@code analyze} the DELETEs run in a transaction of their own that is rolled back, so it can't join the current one.
+   */
+  public DeleteGraphExplain explainDeleteByIds(Class<?> clazz, List<Long> ids, boolean analyze) {
+    if (analyze && isInTransaction()) throw new IllegalStateException("An analyzed explain rolls back, it can't join the current transaction");
+    return withConnection(connectUtils -> new DeleteGraphBuilder(connectUtils, clazz, ids).explain(analyze));
+  }
+
+  /** Latency, row and error counters per SQL template, the most expensive templates first */
+  public List<SqlMetrics.TemplateSnapshot> getSqlMetrics() {
+    return SqlMetrics.getInstance().getTemplateMetrics();
+  }
+
+  /** Sampled executions slower than `dbconnect.metrics.slow-query-threshold-ms`, most recent last */
+  public List<SqlMetrics.SlowQuery> getSlowQueries() {
+    return SqlMetrics.getInstance().getSlowQueries();
+  }
+
+  public void resetSqlMetrics() {
+    SqlMetrics.getInstance().reset();
+  }
+
+  /** Invalidate the tables {@code SQL_QUERY} writes, or every table if they can't be parsed */
+  private void invalidateTablesOf(String SQL_QUERY) {
+    if (Objects.isNull(queryCache)) return;
+    Set<String> tables = queryCache.tablesOf(SQL_QUERY);
+    invalidateTables(Objects.isNull(tables) ? List.of(QueryResultCache.ALL_TABLES) : tables);
+  }
+
+  private void rollbackQuietly(DBConnectUtils connectUtils) {
+    try {
+      connectUtils.rollback();
+    } catch (RuntimeException e) {
+      log.error("Rollback failed: {}", e.getMessage());
+    }
   }
 
   public <T> T orElse(T comparand, T defaultValue) {
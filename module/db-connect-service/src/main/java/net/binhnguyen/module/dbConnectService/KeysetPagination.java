@@ -0,0 +1,176 @@
+package net.binhnguyen.module.dbConnectService;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.utils.DataSerializer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Wrap a search template into a keyset (seek) page query: <br/>
+ *        SELECT * FROM (template) AS search_page WHERE filters AND (sort, key) > (:last sort, :last key) ORDER BY sort, key LIMIT n <br/>
+ *        Unlike OFFSET, the cost of a page does not grow with its position when (sort, key) is indexed. <br/>
+ *        Rows with a NULL sort value come last in both directions: the continuation keeps them with `OR sort IS NULL`,
+ *        and once the last row is in that tail the predicate becomes `sort IS NULL AND key > :last key`. <br/>
+ *        The continuation token carries the (sort, key) values of the last row with their types.
+ */
+class KeysetPagination {
+
+  private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+  static final String SORT_VALUE    = "_page_sort";
+  static final String KEY_VALUE     = "_page_key";
+  static final String LIMIT         = "_page_limit";
+  static final String FILTER_PREFIX = "_page_filter_";
+
+  private KeysetPagination() {}
+
+  /** @return SELECT over the template with the request filters, parameters added to {@code params} */
+  static String buildFilteredQuery(String template, SearchPageRequest request, Record params) {
+    StringBuilder sql = new StringBuilder("SELECT * FROM (").append(stripTerminator(template)).append(") AS search_page");
+    List<String> conditions = buildFilterConditions(request.getFilters(), params);
+    if (!conditions.isEmpty()) sql.append(" WHERE ").append(String.join(" AND ", conditions));
+    return sql.toString();
+  }
+
+  /** @return The page query fetching {@code limit + 1} rows, so the caller knows if there is a next page */
+  static String buildPageQuery(String template, SearchPageRequest request, Record params) {
+    final String keyField = identifier(request.getKeyField());
+    final String sortField = Objects.isNull(request.getSortField()) ? null : identifier(request.getSortField());
+    final String direction = request.isDescending() ? "DESC" : "ASC";
+
+    StringBuilder sql = new StringBuilder("SELECT * FROM (").append(stripTerminator(template)).append(") AS search_page");
+    List<String> conditions = buildFilterConditions(request.getFilters(), params);
+
+    if (Objects.nonNull(request.getContinuationToken())) {
+      Object[] last = decodeToken(request.getContinuationToken());
+      final String operator = request.isDescending() ? "<" : ">";
+      if (Objects.nonNull(sortField) && !sortField.equals(keyField)) {
+        if (Objects.isNull(last[0])) {
+          // Already in the NULL tail, only NULL rows with a further key remain
+          conditions.add("(" + sortField + " IS NULL AND " + keyField + " " + operator + " :" + KEY_VALUE + ")");
+        } else {
+          // A row comparison with a NULL side is NULL, the NULL tail that comes after every value is added explicitly
+          conditions.add("((" + sortField + ", " + keyField + ") " + operator + " (:" + SORT_VALUE + ", :" + KEY_VALUE + ") OR " + sortField + " IS NULL)");
+          params.put(SORT_VALUE, last[0]);
+        }
+      } else {
+        conditions.add(keyField + " " + operator + " :" + KEY_VALUE);
+      }
+      params.put(KEY_VALUE, last[1]);
+    }
+    if (!conditions.isEmpty()) sql.append(" WHERE ").append(String.join(" AND ", conditions));
+
+    sql.append(" ORDER BY ");
+    if (Objects.nonNull(sortField) && !sortField.equals(keyField)) sql.append(sortField).append(' ').append(direction).append(" NULLS LAST, ");
+    sql.append(keyField).append(' ').append(direction);
+    sql.append(" LIMIT :").append(LIMIT);
+    params.put(LIMIT, clampLimit(request.getLimit()) + 1);
+    return sql.toString();
+  }
+
+  static int clampLimit(int limit) {
+    if (limit < 1) return 1;
+    return Math.min(limit, SearchPageRequest.MAX_LIMIT);
+  }
+
+  private static List<String> buildFilterConditions(Record filters, Record params) {
+    List<String> conditions = new ArrayList<>();
+    if (Objects.isNull(filters)) return conditions;
+    int idx = 0;
+    for (Map.Entry<String, Object> filter : filters.entrySet()) {
+      final String column = identifier(filter.getKey());
+      final String paramName = FILTER_PREFIX + idx++;
+      final Object value = filter.getValue();
+      switch (value) {
+        case null -> conditions.add(column + " IS NULL");
+        case Collection<?> collection -> {
+          conditions.add(column + " IN (:" + paramName + ")");
+          params.put(paramName, collection);
+        }
+        case Object[] objects -> {
+          conditions.add(column + " IN (:" + paramName + ")");
+          params.put(paramName, objects);
+        }
+        case String str when str.contains("%") -> {
+          conditions.add(column + "::text ILIKE :" + paramName);
+          params.put(paramName, str);
+        }
+        default -> {
+          conditions.add(column + " = :" + paramName);
+          params.put(paramName, value);
+        }
+      }
+    }
+    return conditions;
+  }
+
+  /** Column names are spliced into the SQL, so only plain identifiers are accepted */
+  private static String identifier(String name) {
+    if (Objects.isNull(name) || !IDENTIFIER.matcher(name).matches()) {
+      throw new IllegalArgumentException("Invalid column name: " + name);
+    }
+    return name;
+  }
+
+  private static String stripTerminator(String template) {
+    String sql = template.trim();
+    while (sql.endsWith(";")) sql = sql.substring(0, sql.length() - 1).trim();
+    return sql;
+  }
+
+  static String encodeToken(Object sortValue, Object keyValue) {
+    List<List<String>> token = List.of(encodeValue(sortValue), encodeValue(keyValue));
+    String json = DataSerializer.JSON.toString(token);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static Object[] decodeToken(String token) {
+    try {
+      String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      JsonNode node = DataSerializer.JSON.fromString(json, JsonNode.class);
+      return new Object[] { decodeValue(node.get(0)), decodeValue(node.get(1)) };
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid continuation token", e);
+    }
+  }
+
+  private static List<String> encodeValue(Object value) {
+    switch (value) {
+      case null -> { return Arrays.asList("null", null); }
+      case Long num -> { return List.of("long", num.toString()); }
+      case Integer num -> { return List.of("int", num.toString()); }
+      case BigDecimal num -> { return List.of("decimal", num.toPlainString()); }
+      case Double num -> { return List.of("double", num.toString()); }
+      case Float num -> { return List.of("double", num.toString()); }
+      case Boolean bool -> { return List.of("bool", bool.toString()); }
+      case Timestamp timestamp -> { return List.of("timestamp", timestamp.toString()); }
+      case Date date -> { return List.of("date", date.toString()); }
+      default -> { return List.of("string", value.toString()); }
+    }
+  }
+
+  private static Object decodeValue(JsonNode node) {
+    final String type = node.get(0).asText();
+    final JsonNode valueNode = node.get(1);
+    if (Objects.isNull(valueNode) || valueNode.isNull()) return null;
+    final String value = valueNode.asText();
+    return switch (type) {
+      case "long" -> Long.parseLong(value);
+      case "int" -> Integer.parseInt(value);
+      case "decimal" -> new BigDecimal(value);
+      case "double" -> Double.parseDouble(value);
+      case "bool" -> Boolean.parseBoolean(value);
+      case "timestamp" -> Timestamp.valueOf(value);
+      case "date" -> Date.valueOf(value);
+      default -> value;
+    };
+  }
+}
@@ -0,0 +1,44 @@
+package net.binhnguyen.module.dbConnectService;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage A background delete graph purge, one row of {@link PurgeJobService#JOB_TABLE}. <br/>
+ *        {@link #processedIds} counts root ids done so far, {@link #deletedIds} the ones that still existed and were deleted.
+ */
+@NoArgsConstructor @Getter @Setter
+public class PurgeJob {
+  private Long          id;
+  private String        entityClass;
+  private Status        status;
+  private int           totalIds;
+  private long          processedIds;
+  private long          deletedIds;
+  private int           rowsPerSecond;
+  private int           batchSize;
+  private String        error;
+  private LocalDateTime createdTime;
+  private LocalDateTime modifiedTime;
+
+  public enum Status {
+    QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+    public boolean isFinished() {
+      return COMPLETED.equals(this) || CANCELLED.equals(this);
+    }
+  }
+
+  public long getRemainingIds() {
+    return totalIds - processedIds;
+  }
+
+  public double getProgress() {
+    return totalIds == 0 ? 1 : (double) processedIds / totalIds;
+  }
+}
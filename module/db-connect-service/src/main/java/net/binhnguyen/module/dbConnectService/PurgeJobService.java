@@ -0,0 +1,298 @@
+package net.binhnguyen.module.dbConnectService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.utils.DBConnectUtils;
+import net.binhnguyen.module.deletegraph.DeleteGraphBuilder;
+import net.binhnguyen.module.deletegraph.DeleteGraphExecutionMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Persistent queue of delete graph purges, worked off in the background at a throttled rate. <br/>
+ *        - {@link #enqueue(Class, List)} stores the job and its ids ({@link #JOB_TABLE}, {@link #JOB_ID_TABLE}) and returns at once. <br/>
+ *        - One worker thread deletes {@code batchSize} root ids per transaction, then sleeps so the job stays under
+ *          {@code rowsPerSecond} root ids per second. The processed ids are removed from the queue in the same transaction
+ *          as the delete, so a restart resumes exactly where the job stopped. <br/>
+ *        - Each batch locks the job row with SKIP LOCKED, several application instances never work on the same job. <br/>
+ *        - Ids that no longer exist are skipped, unlike {@link DBConnectService#deleteByIds(Class, List)}. <br/>
+ *        - {@link #cancel(long)} stops a job before its next batch, {@link #resume(long)} requeues a failed or cancelled one. <br/>
+ *        Opt-in: with `dbconnect.purge.enabled=true` the tables are created (`CREATE TABLE IF NOT EXISTS`) at startup
+ *        and the worker polls every `dbconnect.purge.poll-interval-ms`. Disabled (the default), nothing touches the database
+ *        and every method throws {@link IllegalStateException}. <br/>
+ *        Other properties: `dbconnect.purge.rows-per-second` (1000) and `dbconnect.purge.batch-size` (500), the job defaults.
+ */
+@Component @Slf4j
+public class PurgeJobService {
+
+  public static final String JOB_TABLE    = "delete_graph_purge_job";
+  public static final String JOB_ID_TABLE = "delete_graph_purge_job_id";
+
+  @Autowired
+  private DBConnectService dbConnectService;
+
+  @Value("${dbconnect.purge.enabled:false}")
+  private boolean enabled;
+
+  @Value("${dbconnect.purge.poll-interval-ms:5000}")
+  private long pollIntervalMillis;
+
+  /** Root ids per second when the job doesn't say */
+  @Value("${dbconnect.purge.rows-per-second:1000}")
+  private int defaultRowsPerSecond;
+
+  @Value("${dbconnect.purge.batch-size:500}")
+  private int defaultBatchSize;
+
+  private ScheduledExecutorService worker;
+
+  @PostConstruct
+  public void init() {
+    if (!enabled) return;
+    createTables();
+    this.worker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("purge-job-worker").daemon().factory());
+    worker.scheduleWithFixedDelay(this::drain, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    log.info("Purge job worker started, polling every {}ms", pollIntervalMillis);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (Objects.isNull(worker)) return;
+    worker.shutdown();
+    try {
+      // The current batch is one transaction, let it finish rather than roll it back
+      if (!worker.awaitTermination(30, TimeUnit.SECONDS)) worker.shutdownNow();
+    } catch (InterruptedException e) {
+      worker.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  private void ensureEnabled() {
+    if (!enabled) throw new IllegalStateException("The purge queue is disabled, set dbconnect.purge.enabled=true");
+  }
+
+  private void createTables() {
+    dbConnectService.runInTransaction(connectUtils -> {
+      connectUtils.execute(
+        "CREATE TABLE IF NOT EXISTS " + JOB_TABLE + " (\n"
+          + "  id              BIGSERIAL PRIMARY KEY,\n"
+          + "  entity_class    VARCHAR(512) NOT NULL,\n"
+          + "  status          VARCHAR(32) NOT NULL,\n"
+          + "  total_ids       INT NOT NULL,\n"
+          + "  processed_ids   BIGINT NOT NULL DEFAULT 0,\n"
+          + "  deleted_ids     BIGINT NOT NULL DEFAULT 0,\n"
+          + "  rows_per_second INT NOT NULL,\n"
+          + "  batch_size      INT NOT NULL,\n"
+          + "  error           TEXT,\n"
+          + "  created_time    TIMESTAMP NOT NULL DEFAULT now(),\n"
+          + "  modified_time   TIMESTAMP NOT NULL DEFAULT now()\n"
+          + ")"
+      );
+      connectUtils.execute(
+        "CREATE TABLE IF NOT EXISTS " + JOB_ID_TABLE + " (\n"
+          + "  job_id BIGINT NOT NULL REFERENCES " + JOB_TABLE + " (id) ON DELETE CASCADE,\n"
+          + "  id     BIGINT NOT NULL,\n"
+          + "  PRIMARY KEY (job_id, id)\n"
+          + ")"
+      );
+    });
+  }
+
+  public long enqueue(Class<?> clazz, List<Long> ids) {
+    return enqueue(clazz, ids, defaultRowsPerSecond, defaultBatchSize);
+  }
+
+  /**
+   * @param rowsPerSecond Max root ids deleted per second
+   * @return The job id
+   */
+  public long enqueue(Class<?> clazz, List<Long> ids, int rowsPerSecond, int batchSize) {
+    ensureEnabled();
+    if (rowsPerSecond < 1 || batchSize < 1) throw new IllegalArgumentException("Rows per second and batch size must be positive");
+    final Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+    final long jobId = dbConnectService.inTransaction(connectUtils -> {
+      Record job = new Record("entityClass", clazz.getName());
+      job.put("status", PurgeJob.Status.QUEUED);
+      job.put("totalIds", uniqueIds.size());
+      job.put("rowsPerSecond", rowsPerSecond);
+      job.put("batchSize", batchSize);
+      List<Record> inserted = connectUtils.execute(
+        "INSERT INTO " + JOB_TABLE + " (entity_class, status, total_ids, rows_per_second, batch_size)"
+          + " VALUES (:entityClass, :status, :totalIds, :rowsPerSecond, :batchSize) RETURNING id", job
+      );
+      final Long id = (Long) inserted.getFirst().get("id");
+      Iterator<Record> rows = uniqueIds.stream().map(targetId -> {
+        Record row = new Record("job_id", id);
+        row.put("id", targetId);
+        return row;
+      }).iterator();
+      connectUtils.copyIn(JOB_ID_TABLE, List.of("job_id", "id"), rows);
+      return id;
+    });
+    log.info("Queued purge job {}: {} ids of {}", jobId, uniqueIds.size(), clazz.getSimpleName());
+    if (Objects.nonNull(worker)) worker.execute(this::drain);
+    return jobId;
+  }
+
+  public PurgeJob getJob(long jobId) {
+    ensureEnabled();
+    List<PurgeJob> jobs = dbConnectService.search("SELECT * FROM " + JOB_TABLE + " WHERE id = :id", new Record("id", jobId), PurgeJob.class);
+    return jobs.isEmpty() ? null : jobs.getFirst();
+  }
+
+  /** @return Jobs that are not finished yet, oldest first */
+  public List<PurgeJob> getPendingJobs() {
+    ensureEnabled();
+    return dbConnectService.search(
+      "SELECT * FROM " + JOB_TABLE + " WHERE status IN (:statuses) ORDER BY id",
+      new Record("statuses", List.of(PurgeJob.Status.QUEUED, PurgeJob.Status.RUNNING, PurgeJob.Status.FAILED)), PurgeJob.class
+    );
+  }
+
+  /** Stop a job before its next batch. Batches already committed stay deleted */
+  public boolean cancel(long jobId) {
+    ensureEnabled();
+    return updateStatus(jobId, PurgeJob.Status.CANCELLED, null, List.of(PurgeJob.Status.QUEUED, PurgeJob.Status.RUNNING, PurgeJob.Status.FAILED));
+  }
+
+  /** Requeue a failed or cancelled job, it continues with its remaining ids */
+  public boolean resume(long jobId) {
+    ensureEnabled();
+    boolean resumed = updateStatus(jobId, PurgeJob.Status.QUEUED, null, List.of(PurgeJob.Status.FAILED, PurgeJob.Status.CANCELLED));
+    if (resumed && Objects.nonNull(worker)) worker.execute(this::drain);
+    return resumed;
+  }
+
+  private boolean updateStatus(long jobId, PurgeJob.Status status, String error, List<PurgeJob.Status> from) {
+    Record keyValues = new Record("id", jobId);
+    keyValues.put("status", status);
+    keyValues.put("error", Objects.isNull(error) ? "" : error);
+    keyValues.put("from", from);
+    return dbConnectService.executeUpdate(
+      "UPDATE " + JOB_TABLE + " SET status = :status, error = NULLIF(:error, ''), modified_time = now()"
+        + " WHERE id = :id AND status IN (:from)", keyValues
+    ) > 0;
+  }
+
+  /** Work off queued jobs, oldest first, until none is left. Only ever runs on the worker thread */
+  private void drain() {
+    try {
+      Set<Long> skipped = new HashSet<>();
+      while (!Thread.currentThread().isInterrupted()) {
+        Long jobId = nextJobId(skipped);
+        if (Objects.isNull(jobId)) return;
+        if (!runJob(jobId)) skipped.add(jobId);
+      }
+    } catch (RuntimeException e) {
+      log.error("Purge job worker failed: {}", e.getMessage(), e);
+    }
+  }
+
+  private Long nextJobId(Set<Long> skipped) {
+    Record keyValues = new Record("statuses", List.of(PurgeJob.Status.QUEUED, PurgeJob.Status.RUNNING));
+    keyValues.put("skipped", skipped.isEmpty() ? List.of(-1L) : new ArrayList<>(skipped));
+    List<Record> next = dbConnectService.search(
+      "SELECT id FROM " + JOB_TABLE + " WHERE status IN (:statuses) AND id NOT IN (:skipped) ORDER BY id LIMIT 1", keyValues
+    );
+    return next.isEmpty() ? null : (Long) next.getFirst().get("id");
+  }
+
+  /** @return False if the job is locked by another instance */
+  private boolean runJob(long jobId) {
+    while (!Thread.currentThread().isInterrupted()) {
+      final long start = System.nanoTime();
+      BatchResult result;
+      try {
+        result = dbConnectService.inTransaction(connectUtils -> runBatch(connectUtils, jobId));
+      } catch (RuntimeException e) {
+        log.error("Purge job {} failed: {}", jobId, e.getMessage());
+        updateStatus(jobId, PurgeJob.Status.FAILED, e.getMessage(), List.of(PurgeJob.Status.QUEUED, PurgeJob.Status.RUNNING));
+        return true;
+      }
+      if (BatchResult.LOCKED.equals(result)) return false;
+      if (BatchResult.STOPPED.equals(result)) return true;
+
+      long sleepNanos = throttleNanos(result.processed, result.rowsPerSecond, System.nanoTime() - start);
+      if (sleepNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Throttle: a batch of n ids may not take less than n / rowsPerSecond seconds
+   * @return How long to sleep after a batch that took {@code elapsedNanos}, 0 if it was slow enough
+   */
+  static long throttleNanos(int processed, int rowsPerSecond, long elapsedNanos) {
+    long minimumNanos = TimeUnit.SECONDS.toNanos(processed) / Math.max(1, rowsPerSecond);
+    return Math.max(0, minimumNanos - elapsedNanos);
+  }
+
+  private BatchResult runBatch(DBConnectUtils connectUtils, long jobId) {
+    Record jobKey = new Record("id", jobId);
+    List<Record> locked = connectUtils.execute("SELECT * FROM " + JOB_TABLE + " WHERE id = :id FOR UPDATE SKIP LOCKED", jobKey);
+    if (locked.isEmpty()) return BatchResult.LOCKED;
+    Record job = locked.getFirst();
+    PurgeJob.Status status = PurgeJob.Status.valueOf(String.valueOf(job.get("status")));
+    if (!PurgeJob.Status.QUEUED.equals(status) && !PurgeJob.Status.RUNNING.equals(status)) return BatchResult.STOPPED;
+
+    Record batchKey = new Record("id", jobId);
+    batchKey.put("batchSize", job.get("batch_size"));
+    List<Long> ids = connectUtils.execute("SELECT id FROM " + JOB_ID_TABLE + " WHERE job_id = :id ORDER BY id LIMIT :batchSize", batchKey)
+      .stream().map(row -> (Long) row.get("id")).toList();
+    if (ids.isEmpty()) {
+      connectUtils.executeUpdate("UPDATE " + JOB_TABLE + " SET status = 'COMPLETED', modified_time = now() WHERE id = :id", jobKey);
+      log.info("Purge job {} completed", jobId);
+      return BatchResult.STOPPED;
+    }
+
+    Class<?> entity = loadEntity(String.valueOf(job.get("entity_class")));
+    DeleteGraphBuilder graph = new DeleteGraphBuilder(connectUtils, entity, ids);
+    int deleted = graph.doDelete(DeleteGraphExecutionMode.ATOMIC);
+    dbConnectService.invalidateTables(graph.collectTables(new HashSet<>()));
+
+    Record progress = new Record("id", jobId);
+    progress.put("ids", ids);
+    progress.put("processed", ids.size());
+    progress.put("deleted", deleted);
+    connectUtils.executeUpdate("DELETE FROM " + JOB_ID_TABLE + " WHERE job_id = :id AND id IN (:ids)", progress);
+    connectUtils.executeUpdate(
+      "UPDATE " + JOB_TABLE + " SET status = 'RUNNING', processed_ids = processed_ids + :processed,"
+        + " deleted_ids = deleted_ids + :deleted, modified_time = now() WHERE id = :id", progress
+    );
+    return new BatchResult(ids.size(), ((Number) job.get("rows_per_second")).intValue());
+  }
+
+  private Class<?> loadEntity(String className) {
+    try {
+      return Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Unknown entity of purge job: " + className);
+    }
+  }
+
+  private record BatchResult(int processed, int rowsPerSecond) {
+    private static final BatchResult LOCKED  = new BatchResult(-1, 0);
+    private static final BatchResult STOPPED = new BatchResult(0, 0);
+  }
+}
@@ -0,0 +1,417 @@
+package net.binhnguyen.module.dbConnectService;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Search results keyed by (template, normalized parameters). <br/>
+ *        Entries expire after a TTL and the least recently used ones are evicted when either the entry count
+ *        or the total number of cached rows goes over its limit. <br/>
+ *        Each entry remembers the tables its template reads. {@link #invalidateTables(Collection)} drops every entry
+ *        reading one of them, and bumps a per-table version so a query that was already running
+ *        while the write happened does not put its (now stale) result in the cache. <br/>
+ *        Tables are read from FROM/JOIN/USING lists (comma joins included), UPDATE, INTO and TRUNCATE.
+ *        A template whose table references can't be parsed, e.g. a set returning function in FROM, is never cached,
+ *        and writing through one invalidates every table ({@link #ALL_TABLES}).
+ */
+@Slf4j
+public class QueryResultCache {
+
+  /** Pass to {@link #invalidateTables(Collection)} to drop every entry */
+  public static final String ALL_TABLES = "*";
+
+  private static final int          MAX_CACHED_TEMPLATES  = 2048;
+  private static final Set<String>  TABLE_KEYWORDS        = Set.of("FROM", "JOIN", "USING", "UPDATE", "INTO", "TRUNCATE");
+  /** Keywords followed by one table, the others by a comma separated list */
+  private static final Set<String>  SINGLE_TABLE_KEYWORDS = Set.of("JOIN", "UPDATE", "INTO");
+  /** Functions taking `FROM` inside their arguments, e.g. `extract(year FROM created_time)` */
+  private static final Set<String>  FROM_FUNCTIONS        = Set.of("EXTRACT", "SUBSTRING", "TRIM", "OVERLAY", "POSITION");
+  /** Keywords that may follow a table reference, so they are not its alias */
+  private static final Set<String>  CLAUSE_KEYWORDS       = Set.of(
+    "WHERE", "ON", "USING", "SET", "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "CROSS", "NATURAL", "GROUP", "ORDER",
+    "LIMIT", "OFFSET", "HAVING", "WINDOW", "UNION", "INTERSECT", "EXCEPT", "FOR", "RETURNING", "VALUES", "SELECT",
+    "DEFAULT", "OVERRIDING", "TABLESAMPLE", "FETCH", "WITH"
+  );
+  /** Marks a template whose tables could not be parsed, compared by identity */
+  private static final Set<String>  UNPARSED              = Collections.unmodifiableSet(new HashSet<>());
+
+  private final long  ttlMillis;
+  private final int   maxEntries;
+  private final long  maxRows;
+
+  private final LinkedHashMap<CacheKey, Entry>  entries       = new LinkedHashMap<>(64, 0.75f, true);
+  private final Map<String, Set<String>>        templateTables = new ConcurrentHashMap<>(); // Or UNPARSED
+  private final Map<String, AtomicLong>         tableVersions  = new ConcurrentHashMap<>();
+  private long cachedRows;
+
+  private long hits;
+  private long misses;
+  private long puts;
+  private long evictions;
+  private long expirations;
+  private long invalidations;
+
+  public QueryResultCache(long ttlMillis, int maxEntries, long maxRows) {
+    this.ttlMillis  = ttlMillis;
+    this.maxEntries = maxEntries;
+    this.maxRows    = maxRows;
+  }
+
+  /** @return Cached rows (a copy the caller may modify), or null on a miss */
+  public List<Record> get(CacheKey key) {
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (Objects.isNull(entry)) {
+        misses++;
+        return null;
+      }
+      if (entry.expiresAt < System.currentTimeMillis()) {
+        remove(key);
+        expirations++;
+        misses++;
+        return null;
+      }
+      hits++;
+      return copy(entry.rows);
+    }
+  }
+
+  /** Capture the versions of the tables {@code key} reads. Call before running the query, pass it to {@link #put} */
+  public Map<String, Long> snapshotVersions(CacheKey key) {
+    Map<String, Long> versions = new HashMap<>();
+    versions.put(ALL_TABLES, versionOf(ALL_TABLES).get());
+    Set<String> tables = tablesOf(key.template());
+    if (Objects.isNull(tables)) return versions;
+    for (String table : tables) {
+      versions.put(table, versionOf(table).get());
+    }
+    return versions;
+  }
+
+  /** Ignored when {@code key}'s template is not {@link #isCacheable(String) cacheable} */
+  public void put(CacheKey key, List<Record> rows, Map<String, Long> versionsBeforeQuery) {
+    if (rows.size() > maxRows || !isCacheable(key.template())) return;
+    synchronized (this) {
+      for (Map.Entry<String, Long> version : versionsBeforeQuery.entrySet()) {
+        if (versionOf(version.getKey()).get() != version.getValue()) return; // Written while the query was running
+      }
+      remove(key);
+      entries.put(key, new Entry(copy(rows), System.currentTimeMillis() + ttlMillis));
+      cachedRows += rows.size();
+      puts++;
+      evictOverflow();
+    }
+  }
+
+  /** Drop every entry that reads one of {@code tables}, or every entry if they include {@link #ALL_TABLES} */
+  public void invalidateTables(Collection<String> tables) {
+    if (tables.isEmpty()) return;
+    Set<String> normalized = new HashSet<>();
+    for (String table : tables) {
+      if (Objects.isNull(table)) continue;
+      normalized.add(normalizeTable(table));
+    }
+    final boolean all = normalized.contains(ALL_TABLES);
+    synchronized (this) {
+      for (String table : normalized) {
+        versionOf(table).incrementAndGet();
+      }
+      Iterator<Map.Entry<CacheKey, Entry>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<CacheKey, Entry> cached = iterator.next();
+        Set<String> cachedTables = tablesOf(cached.getKey().template());
+        if (!all && Objects.nonNull(cachedTables) && Collections.disjoint(cachedTables, normalized)) continue;
+        cachedRows -= cached.getValue().rows.size();
+        iterator.remove();
+        invalidations++;
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    invalidations += entries.size();
+    entries.clear();
+    cachedRows = 0;
+  }
+
+  /**
+   * @return The tables a SQL statement reads or writes, lower case and without schema,
+   *         or null if its table references can't be parsed
+   */
+  public Set<String> tablesOf(String sql) {
+    Set<String> tables = templateTables.get(sql);
+    if (Objects.isNull(tables)) {
+      if (templateTables.size() >= MAX_CACHED_TEMPLATES) {
+        log.warn("QueryResultCache table lookup reached {} templates, clearing. Are statements built with inline values?", MAX_CACHED_TEMPLATES);
+        templateTables.clear();
+      }
+      tables = parseTables(sql);
+      if (Objects.isNull(tables)) {
+        log.debug("Can't parse the tables of \n{}\n its results are not cached", sql);
+        tables = UNPARSED;
+      }
+      templateTables.put(sql, tables);
+    }
+    return tables == UNPARSED ? null : tables;
+  }
+
+  /** @return False if the tables of {@code template} can't be parsed, its results could not be invalidated */
+  public boolean isCacheable(String template) {
+    return Objects.nonNull(tablesOf(template));
+  }
+
+  public synchronized Stats getStats() {
+    return new Stats(hits, misses, puts, evictions, expirations, invalidations, entries.size(), cachedRows);
+  }
+
+  private void evictOverflow() {
+    Iterator<Map.Entry<CacheKey, Entry>> iterator = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || cachedRows > maxRows) && iterator.hasNext()) {
+      Map.Entry<CacheKey, Entry> eldest = iterator.next();
+      cachedRows -= eldest.getValue().rows.size();
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  private void remove(CacheKey key) {
+    Entry removed = entries.remove(key);
+    if (Objects.nonNull(removed)) cachedRows -= removed.rows.size();
+  }
+
+  private AtomicLong versionOf(String table) {
+    return tableVersions.computeIfAbsent(table, name -> new AtomicLong());
+  }
+
+  /** @return The tables named after each table keyword of {@code sql}, or null if one of them can't be parsed */
+  private static Set<String> parseTables(String sql) {
+    final List<Token> tokens = tokenize(sql);
+    if (Objects.isNull(tokens)) return null;
+    Set<String> tables = new HashSet<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      final Token token = tokens.get(i);
+      if (!token.isWord() || !TABLE_KEYWORDS.contains(token.upper())) continue;
+      final String keyword = token.upper();
+      final String previous = i > 0 ? tokens.get(i - 1).upper() : "";
+      if ("FROM".equals(keyword) && (previous.equals("DISTINCT") || isFromFunctionArgument(tokens, i))) continue;
+      if ("UPDATE".equals(keyword) && Set.of("FOR", "KEY", "DO").contains(previous)) continue;
+      if ("USING".equals(keyword) && i + 1 < tokens.size() && tokens.get(i + 1).isOperator()) continue; // ORDER BY x USING <
+      if (!readTableList(tokens, i + 1, keyword, tables)) return null;
+    }
+    return tables;
+  }
+
+  /**
+   * Read the table references following {@code keyword} at {@code start}: `[ONLY] name [[AS] alias]`, or a
+   * parenthesized subquery (its own keywords are read by the caller), separated by commas after FROM, USING and TRUNCATE.
+   * @return False if a reference is not one of those, e.g. a function call
+   */
+  private static boolean readTableList(List<Token> tokens, int start, String keyword, Set<String> tables) {
+    final boolean list = !SINGLE_TABLE_KEYWORDS.contains(keyword);
+    int i = start;
+    while (true) {
+      if (i < tokens.size() && tokens.get(i).isWord() && Set.of("ONLY", "LATERAL", "TABLE").contains(tokens.get(i).upper())) i++;
+      if (i >= tokens.size()) return false;
+
+      if (tokens.get(i).is("(")) {
+        i = closingParenthesis(tokens, i);
+        if (i < 0) return false;
+        i++;
+      } else if (tokens.get(i).isName()) {
+        String name = tokens.get(i++).text();
+        while (i + 1 < tokens.size() && tokens.get(i).is(".") && tokens.get(i + 1).isName()) {
+          name = tokens.get(i + 1).text();
+          i += 2;
+        }
+        // A column list follows the table of INTO, a function call in FROM may read anything
+        if (i < tokens.size() && tokens.get(i).is("(") && ("FROM".equals(keyword) || "JOIN".equals(keyword) || "USING".equals(keyword))) return false;
+        tables.add(name.toLowerCase());
+      } else {
+        return false;
+      }
+
+      if (i < tokens.size() && tokens.get(i).isWord() && "AS".equals(tokens.get(i).upper())) i++;
+      if (i < tokens.size() && tokens.get(i).isName() && !CLAUSE_KEYWORDS.contains(tokens.get(i).upper())) i++;
+      if (!list || i >= tokens.size() || !tokens.get(i).is(",")) return true;
+      i++;
+    }
+  }
+
+  /** True if the FROM at {@code index} sits right inside the parentheses of one of {@link #FROM_FUNCTIONS} */
+  private static boolean isFromFunctionArgument(List<Token> tokens, int index) {
+    int depth = 0;
+    for (int i = index - 1; i >= 0; i--) {
+      if (tokens.get(i).is(")")) depth++;
+      else if (tokens.get(i).is("(") && depth-- == 0) return i > 0 && FROM_FUNCTIONS.contains(tokens.get(i - 1).upper());
+    }
+    return false;
+  }
+
+  private static int closingParenthesis(List<Token> tokens, int open) {
+    int depth = 0;
+    for (int i = open; i < tokens.size(); i++) {
+      if (tokens.get(i).is("(")) depth++;
+      else if (tokens.get(i).is(")") && --depth == 0) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Split {@code sql} into words, quoted identifiers (unquoted), literals and single symbols, dropping comments.
+   * @return The tokens, or null if a quote or comment is not closed
+   */
+  private static List<Token> tokenize(String sql) {
+    List<Token> tokens = new ArrayList<>();
+    final int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      final char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (sql.startsWith("--", i)) {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (sql.startsWith("/*", i)) {
+        int end = sql.indexOf("*/", i + 2);
+        if (end < 0) return null;
+        i = end + 2;
+      } else if (c == '"' || c == '\'') {
+        StringBuilder quoted = new StringBuilder();
+        int j = i + 1;
+        while (true) {
+          if (j >= length) return null;
+          if (sql.charAt(j) == c) {
+            if (j + 1 < length && sql.charAt(j + 1) == c) {
+              quoted.append(c);
+              j += 2;
+              continue;
+            }
+            break;
+          }
+          quoted.append(sql.charAt(j++));
+        }
+        tokens.add(new Token(c == '"' ? TokenKind.QUOTED : TokenKind.LITERAL, quoted.toString()));
+        i = j + 1;
+      } else if (Character.isLetter(c) || c == '_') {
+        int j = i + 1;
+        while (j < length && (Character.isLetterOrDigit(sql.charAt(j)) || sql.charAt(j) == '_' || sql.charAt(j) == '$')) j++;
+        tokens.add(new Token(TokenKind.WORD, sql.substring(i, j)));
+        i = j;
+      } else if (Character.isDigit(c)) {
+        int j = i + 1;
+        while (j < length && (Character.isLetterOrDigit(sql.charAt(j)) || sql.charAt(j) == '.')) j++;
+        tokens.add(new Token(TokenKind.LITERAL, sql.substring(i, j)));
+        i = j;
+      } else {
+        tokens.add(new Token(TokenKind.SYMBOL, String.valueOf(c)));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static String normalizeTable(String table) {
+    String name = table.trim().replace("\"", "").toLowerCase();
+    int schemaEnd = name.lastIndexOf('.');
+    return schemaEnd < 0 ? name : name.substring(schemaEnd + 1);
+  }
+
+  private static List<Record> copy(List<Record> rows) {
+    List<Record> holder = new ArrayList<>(rows.size());
+    for (Record row : rows) {
+      Record clone = new Record();
+      clone.putAll(row);
+      holder.add(clone);
+    }
+    return holder;
+  }
+
+  /**
+   * Parameters are normalized so that equal searches share an entry: keys are sorted,
+   * arrays and collections become lists.
+   */
+  public record CacheKey(String template, Map<String, Object> params) {
+
+    public static CacheKey of(String template, Record sqlArgs) {
+      Map<String, Object> normalized = new TreeMap<>();
+      if (Objects.nonNull(sqlArgs)) {
+        for (Map.Entry<String, Object> arg : sqlArgs.entrySet()) {
+          normalized.put(arg.getKey(), normalize(arg.getValue()));
+        }
+      }
+      return new CacheKey(template, Collections.unmodifiableMap(normalized));
+    }
+
+    private static Object normalize(Object value) {
+      switch (value) {
+        case Object[] objects -> { return Arrays.stream(objects).map(CacheKey::normalize).toList(); }
+        case Collection<?> collection -> { return collection.stream().map(CacheKey::normalize).toList(); }
+        case Enum<?> enumValue -> { return enumValue.name(); }
+        case null, default -> { return value; }
+      }
+    }
+  }
+
+  private record Entry(List<Record> rows, long expiresAt) {}
+
+  private enum TokenKind { WORD, QUOTED, LITERAL, SYMBOL }
+
+  private record Token(TokenKind kind, String text) {
+
+    boolean isWord() {
+      return kind == TokenKind.WORD;
+    }
+
+    boolean isName() {
+      return kind == TokenKind.WORD || kind == TokenKind.QUOTED;
+    }
+
+    boolean is(String symbol) {
+      return kind == TokenKind.SYMBOL && text.equals(symbol);
+    }
+
+    /** A symbol other than punctuation, e.g. the operator of `USING <` */
+    boolean isOperator() {
+      return kind == TokenKind.SYMBOL && !"(),.;:".contains(text);
+    }
+
+    String upper() {
+      return kind == TokenKind.WORD ? text.toUpperCase() : "";
+    }
+  }
+
+  @Getter
+  public static class Stats {
+    private final long hits;
+    private final long misses;
+    private final long puts;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+    private final int  size;
+    private final long rows;
+
+    public Stats(long hits, long misses, long puts, long evictions, long expirations, long invalidations, int size, long rows) {
+      this.hits          = hits;
+      this.misses        = misses;
+      this.puts          = puts;
+      this.evictions     = evictions;
+      this.expirations   = expirations;
+      this.invalidations = invalidations;
+      this.size          = size;
+      this.rows          = rows;
+    }
+
+    public double getHitRatio() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+}
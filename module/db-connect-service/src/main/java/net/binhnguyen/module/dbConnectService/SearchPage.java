@@ -0,0 +1,28 @@
+package net.binhnguyen.module.dbConnectService;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import net.binhnguyen.lib.common.Record;
+
+import java.util.List;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage {@link #continuationToken} is null on the last page. <br/>
+ *        {@link #estimatedTotal} is the planner's row estimate, only filled when requested.
+ */
+@NoArgsConstructor @Getter @Setter
+public class SearchPage {
+  private List<Record>  records;
+  private boolean       hasMore;
+  private String        continuationToken;
+  private Long          estimatedTotal;
+
+  public SearchPage(List<Record> records, boolean hasMore, String continuationToken) {
+    this.records           = records;
+    this.hasMore           = hasMore;
+    this.continuationToken = continuationToken;
+  }
+}
@@ -0,0 +1,36 @@
+package net.binhnguyen.module.dbConnectService;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import net.binhnguyen.lib.common.Record;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage One page of a search, see {@link DBConnectService#searchPage(String, Record, SearchPageRequest)}. <br/>
+ *        {@link #sortField}: Column to order by. Rows with NULL in it come last, whatever the direction. <br/>
+ *        {@link #keyField}: Unique column that breaks ties, `id` by default. <br/>
+ *        {@link #filters}: Column -> value. A collection means IN, a String containing `%` means ILIKE, null means IS NULL. <br/>
+ *        {@link #continuationToken}: Token of the previous page, null for the first page.
+ */
+@NoArgsConstructor @Getter @Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SearchPageRequest {
+  public static final int MAX_LIMIT = 5000;
+
+  private int     limit = 50;
+  private String  sortField;
+  private boolean descending;
+  private String  keyField = "id";
+  private Record  filters;
+  private String  continuationToken;
+  private boolean withEstimatedTotal;
+
+  public SearchPageRequest(int limit, String sortField, boolean descending) {
+    this.limit      = limit;
+    this.sortField  = sortField;
+    this.descending = descending;
+  }
+}
@@ -0,0 +1,107 @@
+package net.binhnguyen.module.dbConnectService;
+
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.sql.SqlTemplate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.List;
+
+/** Same package as {@link KeysetPagination}, which is package private */
+public class KeysetPaginationUnitTest {
+
+  private static final String TEMPLATE = "SELECT id, code, label FROM employee;";
+
+  @Test
+  @Tag("unit")
+  public void testTokenRoundTrip() {
+    List<Object> values = List.of(
+      42L, 7, new BigDecimal("12.50"), 1.5d, true, "E01",
+      Timestamp.valueOf("2024-03-01 10:15:30.5"), Date.valueOf("2024-03-01")
+    );
+    for (Object value : values) {
+      Object[] decoded = KeysetPagination.decodeToken(KeysetPagination.encodeToken(value, 100L));
+      Assertions.assertEquals(value, decoded[0]);
+      Assertions.assertEquals(100L, decoded[1]);
+    }
+
+    Object[] decoded = KeysetPagination.decodeToken(KeysetPagination.encodeToken(null, 100L));
+    Assertions.assertNull(decoded[0]);
+    Assertions.assertEquals(100L, decoded[1]);
+  }
+
+  @Test
+  @Tag("unit")
+  public void testInvalidToken() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> KeysetPagination.decodeToken("not a token"));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testFirstPage() {
+    SearchPageRequest request = new SearchPageRequest(20, "code", false);
+    request.setFilters(new Record("label", "A%"));
+    Record params = new Record();
+
+    String sql = KeysetPagination.buildPageQuery(TEMPLATE, request, params);
+    Assertions.assertEquals(
+      "SELECT * FROM (SELECT id, code, label FROM employee) AS search_page" +
+      " WHERE label::text ILIKE :_page_filter_0 ORDER BY code ASC NULLS LAST, id ASC LIMIT :_page_limit",
+      sql
+    );
+    Assertions.assertEquals("A%", params.get("_page_filter_0"));
+    Assertions.assertEquals(21, params.get(KeysetPagination.LIMIT));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testNextPage() {
+    SearchPageRequest request = new SearchPageRequest(20, "code", true);
+    request.setContinuationToken(KeysetPagination.encodeToken("E05", 5L));
+    Record params = new Record();
+
+    String sql = KeysetPagination.buildPageQuery(TEMPLATE, request, params);
+    Assertions.assertTrue(sql.contains(" WHERE ((code, id) < (:_page_sort, :_page_key) OR code IS NULL)"), sql);
+    Assertions.assertTrue(sql.endsWith(" ORDER BY code DESC NULLS LAST, id DESC LIMIT :_page_limit"), sql);
+    Assertions.assertEquals("E05", params.get(KeysetPagination.SORT_VALUE));
+    Assertions.assertEquals(5L, params.get(KeysetPagination.KEY_VALUE));
+    Assertions.assertEquals(3, SqlTemplate.compile(sql).bind(params).getValues().size());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testNextPageAfterNullSortValue() {
+    SearchPageRequest request = new SearchPageRequest(20, "code", false);
+    request.setContinuationToken(KeysetPagination.encodeToken(null, 9L));
+    Record params = new Record();
+
+    String sql = KeysetPagination.buildPageQuery(TEMPLATE, request, params);
+    Assertions.assertTrue(sql.contains(" WHERE (code IS NULL AND id > :_page_key)"), sql);
+    Assertions.assertFalse(params.containsKey(KeysetPagination.SORT_VALUE));
+    Assertions.assertEquals(9L, params.get(KeysetPagination.KEY_VALUE));
+    Assertions.assertEquals(List.of(9L, 21), SqlTemplate.compile(sql).bind(params).getValues());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testKeyOnly() {
+    SearchPageRequest request = new SearchPageRequest(10000, null, false);
+    request.setContinuationToken(KeysetPagination.encodeToken(null, 9L));
+    Record params = new Record();
+
+    String sql = KeysetPagination.buildPageQuery(TEMPLATE, request, params);
+    Assertions.assertTrue(sql.endsWith(" WHERE id > :_page_key ORDER BY id ASC LIMIT :_page_limit"), sql);
+    Assertions.assertEquals(SearchPageRequest.MAX_LIMIT + 1, params.get(KeysetPagination.LIMIT));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testRejectsNonIdentifierColumns() {
+    SearchPageRequest request = new SearchPageRequest(20, "code; DROP TABLE employee", false);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> KeysetPagination.buildPageQuery(TEMPLATE, request, new Record()));
+  }
+}
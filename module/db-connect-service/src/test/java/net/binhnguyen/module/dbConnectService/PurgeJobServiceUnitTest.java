@@ -0,0 +1,33 @@
+package net.binhnguyen.module.dbConnectService;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/** Same package as {@link PurgeJobService}, for its package private throttle */
+public class PurgeJobServiceUnitTest {
+
+  private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  @Tag("unit")
+  public void testThrottle() {
+    // 500 ids at 1000 ids per second take at least half a second
+    Assertions.assertEquals(500 * MILLIS, PurgeJobService.throttleNanos(500, 1000, 0));
+    Assertions.assertEquals(300 * MILLIS, PurgeJobService.throttleNanos(500, 1000, 200 * MILLIS));
+    Assertions.assertEquals(0, PurgeJobService.throttleNanos(500, 1000, 500 * MILLIS));
+    Assertions.assertEquals(0, PurgeJobService.throttleNanos(500, 1000, 2000 * MILLIS));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testThrottleEdges() {
+    Assertions.assertEquals(TimeUnit.SECONDS.toNanos(3), PurgeJobService.throttleNanos(3, 1, 0));
+    Assertions.assertEquals(TimeUnit.SECONDS.toNanos(3), PurgeJobService.throttleNanos(3, 0, 0));
+    Assertions.assertEquals(0, PurgeJobService.throttleNanos(0, 1000, 0));
+    Assertions.assertEquals(333_333, PurgeJobService.throttleNanos(1, 3000, 0));
+    Assertions.assertEquals(TimeUnit.SECONDS.toNanos(Integer.MAX_VALUE), PurgeJobService.throttleNanos(Integer.MAX_VALUE, 1, 0));
+  }
+}
@@ -0,0 +1,202 @@
+package net.binhnguyen.module.dbConnectService.test;
+
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.module.dbConnectService.QueryResultCache;
+import net.binhnguyen.module.dbConnectService.QueryResultCache.CacheKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class QueryResultCacheUnitTest {
+
+  private static final String EMPLOYEE_QUERY = "SELECT e.* FROM public.employee e JOIN department d ON d.id = e.department_id WHERE e.id = :id";
+  private static final String PRODUCT_QUERY  = "SELECT * FROM product WHERE id = :id";
+
+  @Test
+  @Tag("unit")
+  public void testHitReturnsCopy() {
+    QueryResultCache cache = new QueryResultCache(60_000, 10, 100);
+    CacheKey key = CacheKey.of(EMPLOYEE_QUERY, new Record("id", 1L));
+    cache.put(key, rows(1), cache.snapshotVersions(key));
+
+    List<Record> cached = cache.get(key);
+    Assertions.assertEquals(rows(1), cached);
+    cached.getFirst().put("id", 99);
+    Assertions.assertEquals(rows(1), cache.get(key));
+    Assertions.assertNull(cache.get(CacheKey.of(EMPLOYEE_QUERY, new Record("id", 2L))));
+
+    QueryResultCache.Stats stats = cache.getStats();
+    Assertions.assertEquals(2, stats.getHits());
+    Assertions.assertEquals(1, stats.getMisses());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testKeyNormalization() {
+    CacheKey arrayKey = CacheKey.of(EMPLOYEE_QUERY, record("ids", new Long[] { 1L, 2L }, "kind", Thread.State.NEW));
+    CacheKey listKey = CacheKey.of(EMPLOYEE_QUERY, record("kind", "NEW", "ids", List.of(1L, 2L)));
+    Assertions.assertEquals(arrayKey, listKey);
+  }
+
+  @Test
+  @Tag("unit")
+  public void testTtl() throws InterruptedException {
+    QueryResultCache cache = new QueryResultCache(20, 10, 100);
+    CacheKey key = CacheKey.of(PRODUCT_QUERY, new Record("id", 1L));
+    cache.put(key, rows(1), cache.snapshotVersions(key));
+    Assertions.assertNotNull(cache.get(key));
+
+    Thread.sleep(50);
+    Assertions.assertNull(cache.get(key));
+    Assertions.assertEquals(1, cache.getStats().getExpirations());
+    Assertions.assertEquals(0, cache.getStats().getSize());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testLeastRecentlyUsedEviction() {
+    QueryResultCache cache = new QueryResultCache(60_000, 2, 100);
+    CacheKey first = CacheKey.of(PRODUCT_QUERY, new Record("id", 1L));
+    CacheKey second = CacheKey.of(PRODUCT_QUERY, new Record("id", 2L));
+    CacheKey third = CacheKey.of(PRODUCT_QUERY, new Record("id", 3L));
+    cache.put(first, rows(1), cache.snapshotVersions(first));
+    cache.put(second, rows(1), cache.snapshotVersions(second));
+    cache.get(first);
+    cache.put(third, rows(1), cache.snapshotVersions(third));
+
+    Assertions.assertNotNull(cache.get(first));
+    Assertions.assertNull(cache.get(second));
+    Assertions.assertNotNull(cache.get(third));
+    Assertions.assertEquals(1, cache.getStats().getEvictions());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testRowLimit() {
+    QueryResultCache cache = new QueryResultCache(60_000, 10, 5);
+    CacheKey tooLarge = CacheKey.of(PRODUCT_QUERY, new Record("id", 1L));
+    cache.put(tooLarge, rows(6), cache.snapshotVersions(tooLarge));
+    Assertions.assertNull(cache.get(tooLarge));
+
+    CacheKey first = CacheKey.of(PRODUCT_QUERY, new Record("id", 2L));
+    CacheKey second = CacheKey.of(PRODUCT_QUERY, new Record("id", 3L));
+    cache.put(first, rows(3), cache.snapshotVersions(first));
+    cache.put(second, rows(3), cache.snapshotVersions(second));
+    Assertions.assertNull(cache.get(first));
+    Assertions.assertNotNull(cache.get(second));
+    Assertions.assertEquals(3, cache.getStats().getRows());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testInvalidateTables() {
+    QueryResultCache cache = new QueryResultCache(60_000, 10, 100);
+    Assertions.assertEquals(Set.of("employee", "department"), cache.tablesOf(EMPLOYEE_QUERY));
+
+    CacheKey employee = CacheKey.of(EMPLOYEE_QUERY, new Record("id", 1L));
+    CacheKey product = CacheKey.of(PRODUCT_QUERY, new Record("id", 1L));
+    cache.put(employee, rows(1), cache.snapshotVersions(employee));
+    cache.put(product, rows(1), cache.snapshotVersions(product));
+
+    cache.invalidateTables(List.of("PUBLIC.Department"));
+    Assertions.assertNull(cache.get(employee));
+    Assertions.assertNotNull(cache.get(product));
+    Assertions.assertEquals(1, cache.getStats().getInvalidations());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testWriteDuringQueryDropsPut() {
+    QueryResultCache cache = new QueryResultCache(60_000, 10, 100);
+    CacheKey key = CacheKey.of(EMPLOYEE_QUERY, new Record("id", 1L));
+    Map<String, Long> versions = cache.snapshotVersions(key);
+
+    // The query is running while another request writes one of its tables
+    cache.invalidateTables(List.of("employee"));
+    cache.put(key, rows(1), versions);
+    Assertions.assertNull(cache.get(key));
+    Assertions.assertEquals(0, cache.getStats().getPuts());
+
+    cache.put(key, rows(1), cache.snapshotVersions(key));
+    Assertions.assertNotNull(cache.get(key));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testTableLookupIsBounded() {
+    QueryResultCache cache = new QueryResultCache(60_000, 10, 100);
+    for (int i = 0; i < 5000; i++) {
+      Assertions.assertEquals(Set.of("product"), cache.tablesOf("SELECT * FROM product WHERE id = " + i));
+    }
+    Assertions.assertEquals(Set.of("employee", "department"), cache.tablesOf(EMPLOYEE_QUERY));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testCommaJoinsUsingAndQuotedTables() {
+    QueryResultCache cache = new QueryResultCache(60_000, 10, 100);
+    Assertions.assertEquals(
+      Set.of("employee", "department", "company"),
+      cache.tablesOf("SELECT * FROM employee e, public.department AS d, \"Company\" WHERE e.department_id = d.id")
+    );
+    Assertions.assertEquals(
+      Set.of("employee", "department", "company"),
+      cache.tablesOf("DELETE FROM ONLY employee e USING department d, company c WHERE e.department_id = d.id")
+    );
+    Assertions.assertEquals(
+      Set.of("employee", "department"),
+      cache.tablesOf("UPDATE \"public\".\"Employee\" SET label = 'from product' FROM department WHERE code = :code")
+    );
+    Assertions.assertEquals(
+      Set.of("employee", "department"),
+      cache.tablesOf("SELECT extract(year FROM e.created_time) FROM employee e JOIN department d USING (id) FOR UPDATE")
+    );
+    Assertions.assertEquals(
+      Set.of("employee", "search_source"),
+      cache.tablesOf("SELECT * FROM (SELECT * FROM employee) AS s, search_source WHERE s.id = search_source.id")
+    );
+  }
+
+  @Test
+  @Tag("unit")
+  public void testUnparsedTemplateIsNotCached() {
+    QueryResultCache cache = new QueryResultCache(60_000, 10, 100);
+    String functionQuery = "SELECT * FROM employee e, search_employee(:label) s WHERE s.id = e.id";
+    Assertions.assertNull(cache.tablesOf(functionQuery));
+    Assertions.assertFalse(cache.isCacheable(functionQuery));
+    Assertions.assertFalse(cache.isCacheable("SELECT * FROM \"employee"));
+
+    CacheKey key = CacheKey.of(functionQuery, new Record("label", "A"));
+    cache.put(key, rows(1), cache.snapshotVersions(key));
+    Assertions.assertNull(cache.get(key));
+
+    CacheKey product = CacheKey.of(PRODUCT_QUERY, new Record("id", 1L));
+    Map<String, Long> versions = cache.snapshotVersions(product);
+    cache.invalidateTables(List.of(QueryResultCache.ALL_TABLES));
+    cache.put(product, rows(1), versions);
+    Assertions.assertNull(cache.get(product));
+
+    cache.put(product, rows(1), cache.snapshotVersions(product));
+    cache.invalidateTables(List.of(QueryResultCache.ALL_TABLES));
+    Assertions.assertNull(cache.get(product));
+  }
+
+  private static List<Record> rows(int count) {
+    List<Record> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(record("id", (long) i, "label", "Row " + i));
+    }
+    return rows;
+  }
+
+  private static Record record(String key, Object value, String otherKey, Object otherValue) {
+    Record record = new Record(key, value);
+    record.put(otherKey, otherValue);
+    return record;
+  }
+}
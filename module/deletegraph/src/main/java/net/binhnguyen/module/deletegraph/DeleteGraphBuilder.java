@@ -1,23 +1,29 @@
 package net.binhnguyen.module.deletegraph;
 
-import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.common.BaseEntity;
 import net.binhnguyen.lib.utils.DBConnectUtils;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.*;
 
 /**
  * @author Bình Nguyễn
  * @Email jackjack2000.kahp@gmail.com
  * @Usage Work like a Binary tree. Each node is a delete query of the target table. <br/>
  *        1. Case OneToOne/OneToMany: Delete from child to parent. <br/>
- *        2. Case ManyToMany: Delete relation table, then delete from child to parent. */
+ *        2. Case ManyToMany: Delete relation table, then delete from child to parent. <br/>
+ *        The tree is resolved level by level: the candidate ids of every edge of a level are looked up together,
+ *        in a single UNION ALL query, so planning costs one round trip per level instead of one per edge.
+ *        Depth is not capped, a self referencing tree resolves as deep as its data goes. The ids seen per table are tracked,
+ *        an edge only gets a child for the rows it finds that are not in the graph yet, so a cycle in the data ends the cascade. <br/>
+ *        The same graph can archive / restore instead of delete, see {@link #doArchive(BaseEntity.StorageState)}. <br/>
+ *        Annotations are read once per entity into a {@link DeleteGraphPlan}, held and validated by
+ *        {@link DeleteGraphRegistry#planOf(Class)}, nodes only look their statements up. */
 @Slf4j
 @Getter
 @Setter
@@ -29,22 +35,142 @@ public class DeleteGraphBuilder {
   private String                    joinField;
   private List<Long>                targetIds;
   private List<DeleteGraphBuilder>  childGraphs = new ArrayList<>();
+  /** Pre-rendered by the plan, null if this node's table was unknown */
+  private String                    deleteSQL;
 
 
   public DeleteGraphBuilder(DBConnectUtils dbConnectUtils, Class<?> entity, List<Long> candidateIds) {
+    this(dbConnectUtils, entity, candidateIds, true);
+  }
+
+  private DeleteGraphBuilder(DBConnectUtils dbConnectUtils, Class<?> entity, List<Long> candidateIds, boolean root) {
     this.dbConnectUtils  = dbConnectUtils;
     this.entity          = entity;
     this.targetIds       = candidateIds;
 
-    Table ann = entity.getAnnotation(Table.class);
-    if (Objects.nonNull(ann)) table = ann.name();
-    buildChildGraph();
+    DeleteGraphPlan plan = DeleteGraphRegistry.planOf(entity);
+    this.table     = plan.getTable();
+    this.deleteSQL = plan.getDeleteSQL();
+    if (root) buildChildGraphs();
   }
 
+  /** Delete with a commit after every node, see {@link DeleteGraphExecutionMode#PER_NODE} */
   public int doDelete() {
+    return doDelete(DeleteGraphExecutionMode.PER_NODE);
+  }
+
+  /**
+   * Only PER_NODE commits here. Otherwise the deletes are left in the current transaction,
+   * {@link DeleteGraphExecutor} or the caller decides when to commit.
+   * @return Number of deleted rows of the root table
+   */
+  public int doDelete(DeleteGraphExecutionMode mode) {
+    DeleteGraphSQL graph = buildDeleteGraphSQL();
+    if (Objects.isNull(graph)) return 0;
+    return graph.executeDelete(dbConnectUtils, DeleteGraphExecutionMode.PER_NODE.equals(mode));
+  }
+
+  /**
+   * Run with the options' mode. With a parallelism above 1 in PER_NODE mode, independent sibling subtrees
+   * are deleted concurrently on their own connections, see {@link ParallelDeleteRunner}.
+   * @return Number of deleted rows of the root table
+   */
+  public int doDelete(DeleteGraphOptions options) {
+    return doDelete(options, options.getDataSource());
+  }
+
+  /** @param dataSource Where a parallel delete leases its extra connections, in place of the options' one */
+  public int doDelete(DeleteGraphOptions options, DataSource dataSource) {
+    if (options.getParallelism() <= 1) return doDelete(options.getMode());
+    if (!DeleteGraphExecutionMode.PER_NODE.equals(options.getMode())) {
+      log.warn("Parallel delete needs PER_NODE mode, a {} delete runs on one connection", options.getMode());
+      return doDelete(options.getMode());
+    }
     DeleteGraphSQL graph = buildDeleteGraphSQL();
     if (Objects.isNull(graph)) return 0;
-    return graph.executeDelete(dbConnectUtils);
+    try (ParallelDeleteRunner runner = new ParallelDeleteRunner(options.getParallelism(), dataSource)) {
+      return runner.execute(graph, dbConnectUtils);
+    }
+  }
+
+  /**
+   * Set `storage_state` (and `modified_time`) of every row of the graph with one UPDATE per table, nothing is deleted
+   * and nothing is committed. Relation tables and entities that are not a {@link BaseEntity} have no storage state,
+   * they are skipped, but the graph below them is not. Rows already in {@code state} are left untouched.
+   * @return Number of updated rows, all tables together
+   */
+  public int doArchive(BaseEntity.StorageState state) {
+    Map<String, Set<Long>> idsByTable = new LinkedHashMap<>();
+    collectArchivableIds(idsByTable);
+    final LocalDateTime now = LocalDateTime.now();
+    int total = 0;
+    for (Map.Entry<String, Set<Long>> entry : idsByTable.entrySet()) {
+      final String SQL_QUERY = "UPDATE " + entry.getKey()
+        + " SET storage_state = :storageState, modified_time = :modifiedTime"
+        + " WHERE id IN (:ids) AND storage_state <> :storageState";
+      Record keyValues = new Record("storageState", state);
+      keyValues.put("modifiedTime", now);
+      keyValues.put("ids", new ArrayList<>(entry.getValue()));
+      int count = dbConnectUtils.executeUpdate(SQL_QUERY, keyValues);
+      log.debug("EXECUTE ARCHIVE SQL:\n  {}\n\t {} {} Records", SQL_QUERY, state, count);
+      total += count;
+    }
+    return total;
+  }
+
+  private void collectArchivableIds(Map<String, Set<Long>> idsByTable) {
+    boolean archivable = Objects.nonNull(table)
+      && BaseEntity.class.isAssignableFrom(entity)
+      && !DeleteGraphJoinType.ManyToMany.equals(joinType);
+    if (archivable && !targetIds.isEmpty()) idsByTable.computeIfAbsent(table, key -> new LinkedHashSet<>()).addAll(targetIds);
+    for (DeleteGraphBuilder child : childGraphs) {
+      child.collectArchivableIds(idsByTable);
+    }
+  }
+
+  /**
+   * Lock every row this graph is about to delete with `FOR UPDATE`: table by table in alphabetical order,
+   * ids ascending within a table. Concurrent deletes locking through this method always take their locks
+   * in the same order, so they wait for each other instead of deadlocking.
+   */
+  public void lockRows() {
+    DeleteGraphSQL graph = buildDeleteGraphSQL();
+    if (Objects.isNull(graph)) return;
+    Map<String, Map<String, TreeSet<Long>>> idsByTable = new TreeMap<>();
+    collectLockTargets(graph, idsByTable);
+    for (Map.Entry<String, Map<String, TreeSet<Long>>> table : idsByTable.entrySet()) {
+      for (Map.Entry<String, TreeSet<Long>> column : table.getValue().entrySet()) {
+        final String SQL_QUERY = "SELECT count(*) AS locked FROM ("
+          + "SELECT 1 FROM " + table.getKey() + " WHERE " + column.getKey() + " IN (:ids)"
+          + " ORDER BY " + column.getKey() + " FOR UPDATE) rows";
+        dbConnectUtils.execute(SQL_QUERY, new Record("ids", new ArrayList<>(column.getValue())));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void collectLockTargets(DeleteGraphSQL node, Map<String, Map<String, TreeSet<Long>>> idsByTable) {
+    Object ids = node.getSqlKeyValueMap().get("ids");
+    if (Objects.nonNull(node.getTable()) && ids instanceof Collection<?> collection) {
+      idsByTable.computeIfAbsent(node.getTable(), key -> new TreeMap<>())
+        .computeIfAbsent(node.getKeyColumn(), key -> new TreeSet<>())
+        .addAll((Collection<Long>) collection);
+    }
+    for (List<DeleteGraphSQL> children : Arrays.asList(node.getPreDeleteChildren(), node.getPostDeleteChildren())) {
+      if (Objects.isNull(children)) continue;
+      for (DeleteGraphSQL child : children) {
+        if (Objects.nonNull(child)) collectLockTargets(child, idsByTable);
+      }
+    }
+  }
+
+  /** @return Every table of this graph */
+  public Set<String> collectTables(Set<String> holder) {
+    if (Objects.nonNull(table)) holder.add(table);
+    for (DeleteGraphBuilder child : childGraphs) {
+      child.collectTables(holder);
+    }
+    return holder;
   }
 
   public void dumpSql() {
@@ -56,14 +182,29 @@ public class DeleteGraphBuilder {
     graph.dumpSql();
   }
 
+  /**
+   * Structured plan of this graph, see {@link DeleteGraphExplain}.
+   * @param analyze Run every DELETE for real timings, then roll back the current transaction of the connection.
+   *                Deleted rows stay locked until then, don't use it on hot tables in production
+   * @return The plan tree, or null if there is nothing to delete
+   */
+  public DeleteGraphExplain explain(boolean analyze) {
+    DeleteGraphSQL graph = buildDeleteGraphSQL();
+    if (Objects.isNull(graph)) return null;
+    if (!analyze) return DeleteGraphExplain.explain(graph, DeleteGraphExplain.Phase.ROOT, dbConnectUtils, false);
+    try {
+      return DeleteGraphExplain.explain(graph, DeleteGraphExplain.Phase.ROOT, dbConnectUtils, true);
+    } finally {
+      dbConnectUtils.rollback();
+    }
+  }
+
   private DeleteGraphSQL buildDeleteGraphSQL() {
     if (targetIds.isEmpty()) return null;
     Record params = new Record("ids", targetIds);
-    String delQuery = "DELETE FROM " + table + " WHERE id IN (:ids)";
-    if (DeleteGraphJoinType.ManyToMany.equals(this.joinType)) {
-      delQuery = "DELETE FROM " + table + " WHERE " + this.joinField + " IN (:ids)";
-    }
-    DeleteGraphSQL graph = new DeleteGraphSQL(delQuery, params);
+    String delQuery = Objects.nonNull(deleteSQL) ? deleteSQL : DeleteGraphPlan.renderDeleteSQL(table, joinType, joinField);
+    DeleteGraphSQL graph = new DeleteGraphSQL(table, delQuery, params);
+    if (DeleteGraphJoinType.ManyToMany.equals(joinType)) graph.setKeyColumn(joinField);
 
     for (DeleteGraphBuilder child : childGraphs) {
       DeleteGraphSQL childGraph = child.buildDeleteGraphSQL();
@@ -77,70 +218,91 @@ public class DeleteGraphBuilder {
     return graph;
   }
 
-  private void buildChildGraph() {
-    DeleteGraphs graphs = entity.getAnnotation(DeleteGraphs.class);
-    if (Objects.nonNull(graphs)) {
-      for (DeleteGraph deleteGraph : graphs.value()) {
-        Class<?> targetCascadeEntity = deleteGraph.target();
-        Table tableAnn = targetCascadeEntity.getAnnotation(Table.class);
-        String targetCascadeTable;
-        if (Objects.isNull(tableAnn)) {
-          targetCascadeTable = deleteGraph.table();
-        } else targetCascadeTable = tableAnn.name();
-        if (!this.targetIds.isEmpty()) {
-          Record keyValues = new Record("candidateIds", this.targetIds);
-          String SQL_QUERY = buildFindCandidateIdsQuery(deleteGraph, targetCascadeTable);
-          List<Record> results = dbConnectUtils.execute(SQL_QUERY, keyValues);
-          List<Long> foundIds;
-          if (Arrays.asList(DeleteGraphJoinType.OneToOne, DeleteGraphJoinType.ManyToMany).contains(deleteGraph.joinType())) {
-            foundIds = extractIdsWithJoinField(results, deleteGraph.joinField());
-          } else foundIds = extractIds(results);
-
-          log.info("Execute SQL:\n {}: total {}", SQL_QUERY, foundIds.size());
-
-          DeleteGraphBuilder child = new DeleteGraphBuilder(dbConnectUtils, targetCascadeEntity, foundIds);
-          if (Objects.isNull(tableAnn)) {
-            child.setTable(deleteGraph.table());
-            child.setJoinField(deleteGraph.joinField());
-          }
-          child.setJoinType(deleteGraph.joinType());
-          childGraphs.add(child);
+  /** Breadth first: resolve every edge of a level with one query, then move on to the children found */
+  private void buildChildGraphs() {
+    // Ids already in the graph, per table and delete column
+    Map<String, Set<Long>> visited = new HashMap<>();
+    visited.computeIfAbsent(visitKey(table, null), key -> new HashSet<>()).addAll(targetIds);
+    List<DeleteGraphBuilder> level = List.of(this);
+    int depth = 0;
+    while (!level.isEmpty()) {
+      List<Edge> edges = new ArrayList<>();
+      for (DeleteGraphBuilder node : level) {
+        if (node.getTargetIds().isEmpty()) continue;
+        for (DeleteGraphPlan.Edge edge : DeleteGraphRegistry.planOf(node.getEntity()).getEdges()) {
+          edges.add(new Edge(node, edge));
         }
       }
+      if (edges.isEmpty()) return;
+      depth++;
+
+      List<List<Long>> foundIds = findCandidateIds(edges);
+      List<DeleteGraphBuilder> nextLevel = new ArrayList<>();
+      for (int i = 0; i < edges.size(); i++) {
+        Edge edge = edges.get(i);
+        DeleteGraphPlan.Edge planEdge = edge.planEdge();
+        // Rows already in the graph are deleted where they were first found, only the new ones make a child
+        Set<Long> seen = visited.computeIfAbsent(visitKey(planEdge.getChildTable(), planEdge.getChildJoinField()), key -> new HashSet<>());
+        List<Long> newIds = new ArrayList<>();
+        for (Long id : foundIds.get(i)) {
+          if (seen.add(id)) newIds.add(id);
+        }
+        if (newIds.isEmpty()) continue;
+
+        DeleteGraphBuilder child = new DeleteGraphBuilder(dbConnectUtils, planEdge.getTarget(), newIds, false);
+        child.setTable(planEdge.getChildTable());
+        child.setJoinField(planEdge.getChildJoinField());
+        child.setJoinType(planEdge.getJoinType());
+        child.setDeleteSQL(planEdge.getChildDeleteSQL());
+        edge.parent().getChildGraphs().add(child);
+        nextLevel.add(child);
+      }
+      if (nextLevel.isEmpty()) {
+        log.debug("Delete graph of {} only found rows already in the graph at depth {}, stop", entity.getName(), depth);
+        return;
+      }
+      level = nextLevel;
     }
   }
 
-  private String buildFindCandidateIdsQuery(DeleteGraph deleteGraph, String targetCascadeTable) {
-    String SQl_QUERY;
-    if (DeleteGraphJoinType.OneToOne.equals(deleteGraph.joinType())) {
-      SQl_QUERY = "SELECT " + deleteGraph.joinField() + " FROM " + this.table + " WHERE id IN (:candidateIds)";
-    } else if(DeleteGraphJoinType.ManyToMany.equals(deleteGraph.joinType())) {
-      SQl_QUERY = "SELECT " + deleteGraph.joinField() + " FROM " + targetCascadeTable + " WHERE " + deleteGraph.joinField() + " IN (:candidateIds)" ;
-    } else {
-      SQl_QUERY = "SELECT id FROM " + targetCascadeTable + " WHERE " + deleteGraph.joinField() + " IN (:candidateIds)" ;
-    }
-    return SQl_QUERY;
+  private static String visitKey(String table, String deleteColumn) {
+    return table + "." + (Objects.isNull(deleteColumn) ? "id" : deleteColumn);
   }
 
-  private List<Long> extractIds(List<Record> results) {
-    List<Long> holder = new ArrayList<>(results.size());
-    for (Record result : results) {
-      Object target = result.get("id");
-      if (target instanceof Long) {
-        holder.add((Long) target);
-      }
+  /**
+   * One query for all edges of a level: each edge's lookup is a branch of a UNION ALL, tagged with the edge index.
+   * @return Found ids per edge, in edge order, without duplicates
+   */
+  private List<List<Long>> findCandidateIds(List<Edge> edges) {
+    StringJoiner SQL_QUERY = new StringJoiner("\nUNION ALL\n");
+    Record keyValues = new Record();
+    for (int i = 0; i < edges.size(); i++) {
+      Edge edge = edges.get(i);
+      String param = "candidateIds" + i;
+      SQL_QUERY.add(edge.planEdge().lookupSQL(edge.parent().getTable(), i, param));
+      keyValues.put(param, edge.parent().getTargetIds());
     }
-    return holder;
-  }
 
-  private List<Long> extractIdsWithJoinField(List<Record> results, String joinField) {
-    List<Long> holder = new ArrayList<>(results.size());
+    List<Set<Long>> holder = new ArrayList<>(edges.size());
+    for (int i = 0; i < edges.size(); i++) {
+      holder.add(new LinkedHashSet<>());
+    }
+    List<Record> results = dbConnectUtils.execute(SQL_QUERY.toString(), keyValues);
     for (Record result : results) {
-      Object idObject = result.get(joinField);
-      if (idObject instanceof Long) {
-        holder.add((Long) idObject);
-      }
+      Object edgeIndex = result.get(DeleteGraphPlan.EDGE_COLUMN);
+      Object foundId = result.get(DeleteGraphPlan.ID_COLUMN);
+      // Ids have always been bigint, other types were never cascaded
+      if (edgeIndex instanceof Number index && foundId instanceof Long id) holder.get(index.intValue()).add(id);
     }
-    return holder;
+    log.debug("Execute SQL:\n {}: total {}", SQL_QUERY, results.size());
+
+    List<List<Long>> foundIds = new ArrayList<>(holder.size());
+    for (Set<Long> ids : holder) {
+      foundIds.add(new ArrayList<>(ids));
+    }
+    return foundIds;
   }
-}
\ No newline at end of file
+
+  /** A {@link DeleteGraphPlan.Edge} from a resolved node to the children it is about to get */
+  private record Edge(DeleteGraphBuilder parent, DeleteGraphPlan.Edge planEdge) {}
+}
@@ -0,0 +1,14 @@
+package net.binhnguyen.module.deletegraph;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage How a delete graph commits. <br/>
+ *        ATOMIC: The whole graph in the caller's transaction, nothing is committed in between. <br/>
+ *        PER_NODE: Commit after every node (table), as the delete graph always did. A failure leaves the committed nodes deleted. <br/>
+ *        CHUNKED: Delete the root ids N at a time, each chunk with its whole graph in one transaction, committed on its own.
+ *        Progress is reported after each chunk, so a failed purge can resume from the remaining ids.
+ */
+public enum DeleteGraphExecutionMode {
+  ATOMIC, PER_NODE, CHUNKED
+}
@@ -0,0 +1,137 @@
+package net.binhnguyen.module.deletegraph;
+
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.sql.SqlExecutionException;
+import net.binhnguyen.lib.utils.DBConnectUtils;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Plan and run the delete graph of an entity in the {@link DeleteGraphExecutionMode} of the options. <br/>
+ *        Every root id must be deleted, otherwise the current chunk (the whole graph in ATOMIC mode) is rolled back
+ *        by the caller (ATOMIC) or here (CHUNKED), and a RuntimeException is thrown. <br/>
+ *        Deadlock safe ({@link DeleteGraphOptions#isDeadlockSafe()}): root ids are deleted in ascending order, each chunk first
+ *        locks its root rows (optionally SKIP LOCKED), then every row of its graph ({@link DeleteGraphBuilder#lockRows()}),
+ *        and a chunk failing with a deadlock or serialization failure is rolled back and run again after a backoff.
+ *        Not available in PER_NODE mode, an IllegalArgumentException is thrown.
+ */
+@Slf4j
+public class DeleteGraphExecutor {
+
+  private DeleteGraphExecutor() {}
+
+  public static DeleteGraphProgress execute(DBConnectUtils connUtils, Class<?> entity, List<Long> ids, DeleteGraphOptions options) {
+    DeleteGraphProgress progress = new DeleteGraphProgress(ids);
+    execute(connUtils, entity, progress, options);
+    return progress;
+  }
+
+  /** Delete the remaining ids of {@code progress}. Also the way to resume a failed chunked delete */
+  public static void execute(DBConnectUtils connUtils, Class<?> entity, DeleteGraphProgress progress, DeleteGraphOptions options) {
+    execute(connUtils, entity, progress, options, true);
+  }
+
+  /**
+   * @param ownsTransaction False when the connection's transaction holds other work too. An ATOMIC delete then can't
+   *                        roll back to retry, deadlocks are thrown to the caller
+   */
+  public static void execute(DBConnectUtils connUtils, Class<?> entity, DeleteGraphProgress progress, DeleteGraphOptions options, boolean ownsTransaction) {
+    execute(connUtils, entity, progress, options, ownsTransaction, options.getDataSource());
+  }
+
+  /** @param dataSource Where a parallel delete leases its extra connections when the options have none */
+  public static void execute(
+    DBConnectUtils connUtils, Class<?> entity, DeleteGraphProgress progress, DeleteGraphOptions options, boolean ownsTransaction, DataSource dataSource
+  ) {
+    final DeleteGraphExecutionMode mode = options.getMode();
+    if (options.isDeadlockSafe() && DeleteGraphExecutionMode.PER_NODE.equals(mode)) {
+      throw new IllegalArgumentException("PER_NODE commits release the locks taken up front, it can't be deadlock safe");
+    }
+    final DataSource extraConnections = Objects.nonNull(options.getDataSource()) ? options.getDataSource() : dataSource;
+    final boolean chunked = DeleteGraphExecutionMode.CHUNKED.equals(mode);
+    final int chunkSize = chunked ? options.getChunkSize() : Integer.MAX_VALUE;
+    final boolean canRetry = options.isDeadlockSafe() && (chunked || ownsTransaction);
+    if (options.isDeadlockSafe()) progress.sortRemainingIds();
+
+    while (!progress.isDone()) {
+      List<Long> chunk = progress.nextChunk(chunkSize);
+      int deleted;
+      for (int attempt = 0; ; attempt++) {
+        try {
+          deleted = deleteChunk(connUtils, entity, chunk, options, extraConnections, progress);
+          if (chunked) connUtils.commit();
+          break;
+        } catch (RuntimeException e) {
+          boolean retry = canRetry && attempt < options.getMaxRetries() && SqlExecutionException.isRetryable(e);
+          if (chunked || retry) rollbackQuietly(connUtils);
+          if (!retry) {
+            log.error("Delete graph of {} failed with {} of {} ids left", entity.getSimpleName(), progress.getRemainingIds().size(), progress.getTotalIds());
+            throw e;
+          }
+          log.warn("Delete graph of {} hit {}, retry {} of {}", entity.getSimpleName(), e.getMessage(), attempt + 1, options.getMaxRetries());
+          backoff(options.getRetryBackoffMillis(), attempt);
+        }
+      }
+
+      progress.completeChunk(chunk.size(), deleted, chunked);
+      if (chunked && Objects.nonNull(options.getListener())) options.getListener().onChunkCommitted(progress);
+    }
+  }
+
+  /** @return Number of deleted root ids */
+  private static int deleteChunk(
+    DBConnectUtils connUtils, Class<?> entity, List<Long> chunk, DeleteGraphOptions options, DataSource dataSource, DeleteGraphProgress progress
+  ) {
+    List<Long> roots = chunk;
+    if (options.isDeadlockSafe()) roots = lockRoots(connUtils, entity, chunk, options.isSkipLocked());
+
+    DeleteGraphBuilder graph = new DeleteGraphBuilder(connUtils, entity, roots);
+    progress.addTables(graph.collectTables(new HashSet<>()));
+    if (options.isDeadlockSafe()) graph.lockRows();
+    int deleted = graph.doDelete(options, dataSource);
+    if (deleted != roots.size()) {
+      throw new RuntimeException("There were some problems while deleting: " + deleted + " of " + roots.size() + " deleted");
+    }
+    return deleted;
+  }
+
+  /**
+   * Lock the root rows first, ascending. Once a root is locked no new child row can reference it,
+   * so the graph planned afterwards stays complete.
+   * @return The locked ids, without the ones skipped with {@code skipLocked}
+   */
+  private static List<Long> lockRoots(DBConnectUtils connUtils, Class<?> entity, List<Long> ids, boolean skipLocked) {
+    final String table = DeleteGraphRegistry.planOf(entity).getTable();
+    if (Objects.isNull(table)) throw new IllegalArgumentException(entity.getName() + " has no @Table");
+    if (ids.isEmpty()) return ids;
+    final String SQL_QUERY = "SELECT id FROM " + table + " WHERE id IN (:ids) ORDER BY id FOR UPDATE" + (skipLocked ? " SKIP LOCKED" : "");
+    List<Record> locked = connUtils.execute(SQL_QUERY, new Record("ids", ids));
+    if (!skipLocked) return ids;
+    return locked.stream().map(row -> ((Number) row.get("id")).longValue()).toList();
+  }
+
+  private static void backoff(long baseMillis, int attempt) {
+    long delay = (baseMillis << Math.min(attempt, 10)) + ThreadLocalRandom.current().nextLong(baseMillis + 1);
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting to retry a delete graph");
+    }
+  }
+
+  private static void rollbackQuietly(DBConnectUtils connUtils) {
+    try {
+      connUtils.rollback();
+    } catch (RuntimeException e) {
+      log.error("Rollback failed: {}", e.getMessage());
+    }
+  }
+}
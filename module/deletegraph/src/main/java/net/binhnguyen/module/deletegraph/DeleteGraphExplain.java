@@ -0,0 +1,149 @@
+package net.binhnguyen.module.deletegraph;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.utils.DBConnectUtils;
+import net.binhnguyen.lib.utils.DataSerializer;
+
+import java.util.*;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage One node of a delete graph plan, built from Postgres `EXPLAIN (FORMAT JSON)` of the node's DELETE. <br/>
+ *        - {@code candidateCount}: ids the node would delete. <br/>
+ *        - {@code estimatedCost} / {@code estimatedRows}: planner estimates. <br/>
+ *        - {@code indexes} / {@code sequentialScan}: how the rows are found. <br/>
+ *        With ANALYZE the DELETEs really run, in execution order, and {@code actualMillis}, {@code actualRows} and
+ *        {@code triggerMillis} are filled. Foreign key checks run as triggers, a high trigger time usually means
+ *        a referencing column without an index.
+ * @see DeleteGraphBuilder#explain(boolean)
+ */
+@Slf4j
+@Getter
+public class DeleteGraphExplain {
+
+  public enum Phase { ROOT, PRE_DELETE, POST_DELETE }
+
+  private final String      table;
+  private final String      deleteSQL;
+  private final Phase       phase;
+  private final int         candidateCount;
+  private Double            estimatedCost;
+  private Long              estimatedRows;
+  private final Set<String> indexes = new LinkedHashSet<>();
+  private boolean           sequentialScan;
+  private Double            actualMillis;
+  private Long              actualRows;
+  private Double            triggerMillis;
+  private final List<DeleteGraphExplain> children = new ArrayList<>();
+
+  private DeleteGraphExplain(DeleteGraphSQL node, Phase phase) {
+    this.table          = node.getTable();
+    this.deleteSQL      = node.getDeleteSQL();
+    this.phase          = phase;
+    this.candidateCount = countCandidates(node.getSqlKeyValueMap());
+  }
+
+  /**
+   * Explain {@code node} and its children in execution order: pre-delete children, the node, post-delete children.
+   * With {@code analyze}, the DELETEs are executed, the caller must roll back afterward.
+   */
+  static DeleteGraphExplain explain(DeleteGraphSQL node, Phase phase, DBConnectUtils connUtils, boolean analyze) {
+    DeleteGraphExplain explain = new DeleteGraphExplain(node, phase);
+    explainChildren(explain, node.getPreDeleteChildren(), Phase.PRE_DELETE, connUtils, analyze);
+
+    final String EXPLAIN_QUERY = (analyze ? "EXPLAIN (ANALYZE, FORMAT JSON) " : "EXPLAIN (FORMAT JSON) ") + node.getDeleteSQL();
+    List<Record> plan = connUtils.execute(EXPLAIN_QUERY, node.getSqlKeyValueMap());
+    if (!plan.isEmpty()) {
+      Object json = plan.getFirst().values().iterator().next();
+      explain.read(DataSerializer.JSON.fromString(String.valueOf(json), JsonNode.class).path(0));
+    }
+
+    explainChildren(explain, node.getPostDeleteChildren(), Phase.POST_DELETE, connUtils, analyze);
+    return explain;
+  }
+
+  private static void explainChildren(DeleteGraphExplain parent, List<DeleteGraphSQL> children, Phase phase, DBConnectUtils connUtils, boolean analyze) {
+    if (Objects.isNull(children)) return;
+    for (DeleteGraphSQL child : children) {
+      if (Objects.nonNull(child)) parent.children.add(explain(child, phase, connUtils, analyze));
+    }
+  }
+
+  private void read(JsonNode root) {
+    JsonNode plan = root.path("Plan");
+    if (plan.has("Total Cost")) estimatedCost = plan.get("Total Cost").asDouble();
+    readScans(plan);
+    if (root.has("Execution Time")) actualMillis = root.get("Execution Time").asDouble();
+
+    JsonNode triggers = root.path("Triggers");
+    if (triggers.isArray() && !triggers.isEmpty()) {
+      double total = 0;
+      for (JsonNode trigger : triggers) {
+        total += trigger.path("Time").asDouble();
+      }
+      triggerMillis = total;
+    }
+  }
+
+  /** The DELETE node itself has no useful row estimate, the scan feeding it does */
+  private void readScans(JsonNode plan) {
+    if (plan.has("Index Name")) indexes.add(plan.get("Index Name").asText());
+    String nodeType = plan.path("Node Type").asText();
+    if ("Seq Scan".equals(nodeType)) sequentialScan = true;
+    if (Objects.isNull(estimatedRows) && !"ModifyTable".equals(nodeType) && plan.has("Plan Rows")) {
+      estimatedRows = plan.get("Plan Rows").asLong();
+      if (plan.has("Actual Rows")) actualRows = plan.get("Actual Rows").asLong();
+    }
+    for (JsonNode child : plan.path("Plans")) {
+      readScans(child);
+    }
+  }
+
+  private static int countCandidates(Record params) {
+    if (Objects.isNull(params)) return 0;
+    int count = 0;
+    for (Object value : params.values()) {
+      if (value instanceof Collection<?> collection) count += collection.size();
+      else if (Objects.nonNull(value)) count++;
+    }
+    return count;
+  }
+
+  /** @return The sum of the estimated costs of this node and its children */
+  public double getTotalEstimatedCost() {
+    double total = Objects.isNull(estimatedCost) ? 0 : estimatedCost;
+    for (DeleteGraphExplain child : children) {
+      total += child.getTotalEstimatedCost();
+    }
+    return total;
+  }
+
+  /** @return An indented, human readable tree, one line per node */
+  public String describe() {
+    StringBuilder holder = new StringBuilder();
+    describe(holder, 0);
+    return holder.toString();
+  }
+
+  private void describe(StringBuilder holder, int depth) {
+    holder.append("  ".repeat(depth))
+      .append(phase).append(' ').append(table)
+      .append(": ").append(candidateCount).append(" candidates")
+      .append(", cost ").append(estimatedCost)
+      .append(", rows ").append(estimatedRows)
+      .append(sequentialScan ? ", SEQ SCAN" : "")
+      .append(indexes.isEmpty() ? "" : ", indexes " + indexes);
+    if (Objects.nonNull(actualMillis)) {
+      holder.append(", actual ").append(actualMillis).append("ms / ").append(actualRows).append(" rows");
+      if (Objects.nonNull(triggerMillis)) holder.append(", triggers ").append(triggerMillis).append("ms");
+    }
+    holder.append('\n');
+    for (DeleteGraphExplain child : children) {
+      child.describe(holder, depth + 1);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package net.binhnguyen.module.deletegraph;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.sql.DataSource;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Per call settings of a delete graph execution, see {@link DeleteGraphExecutor}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class DeleteGraphOptions {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  private DeleteGraphExecutionMode    mode      = DeleteGraphExecutionMode.ATOMIC;
+  /** Root ids per transaction in {@link DeleteGraphExecutionMode#CHUNKED} mode */
+  private int                         chunkSize = DEFAULT_CHUNK_SIZE;
+  private DeleteGraphProgressListener listener;
+  /**
+   * Max connections deleting at once, the caller's included. Above 1, independent sibling subtrees run concurrently,
+   * each committed on its own connection from {@link #dataSource}. Only used in {@link DeleteGraphExecutionMode#PER_NODE} mode,
+   * the other modes need the whole graph (or chunk) in one transaction.
+   */
+  private int                         parallelism = 1;
+  private DataSource                  dataSource;
+
+  /**
+   * Sort the root ids, lock the root rows and then every row of the graph up front in a fixed table order,
+   * and retry deadlocks / serialization failures. ATOMIC and CHUNKED mode only, see {@link DeleteGraphExecutor}
+   */
+  private boolean                     deadlockSafe;
+  /** With {@link #deadlockSafe}: skip root ids another transaction holds, instead of waiting for them. For queue-like purges */
+  private boolean                     skipLocked;
+  private int                         maxRetries       = 3;
+  /** Backoff before the first retry, doubled (plus jitter) for each next one */
+  private long                        retryBackoffMillis = 50;
+
+  public static DeleteGraphOptions atomic() {
+    return new DeleteGraphOptions();
+  }
+
+  public static DeleteGraphOptions perNode() {
+    DeleteGraphOptions options = new DeleteGraphOptions();
+    options.setMode(DeleteGraphExecutionMode.PER_NODE);
+    return options;
+  }
+
+  public static DeleteGraphOptions parallel(int parallelism) {
+    DeleteGraphOptions options = perNode();
+    options.setParallelism(parallelism);
+    return options;
+  }
+
+  /** ATOMIC, with the locking and retries of {@link #deadlockSafe} */
+  public static DeleteGraphOptions deadlockSafe(boolean skipLocked) {
+    DeleteGraphOptions options = new DeleteGraphOptions();
+    options.setDeadlockSafe(true);
+    options.setSkipLocked(skipLocked);
+    return options;
+  }
+
+  public static DeleteGraphOptions chunked(int chunkSize, DeleteGraphProgressListener listener) {
+    if (chunkSize < 1) throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    DeleteGraphOptions options = new DeleteGraphOptions();
+    options.setMode(DeleteGraphExecutionMode.CHUNKED);
+    options.setChunkSize(chunkSize);
+    options.setListener(listener);
+    return options;
+  }
+}
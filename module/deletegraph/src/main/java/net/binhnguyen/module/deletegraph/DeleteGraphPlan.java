@@ -0,0 +1,100 @@
+package net.binhnguyen.module.deletegraph;
+
+import jakarta.persistence.Table;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage The cascade of an entity compiled once from its `@Table` / `@DeleteGraphs` annotations:
+ *        its table, its DELETE statement and one {@link Edge} per {@link DeleteGraph}, with the statements
+ *        pre-rendered. {@link DeleteGraphBuilder} only looks plans up. <br/>
+ *        Plans are not validated here. Get them from {@link DeleteGraphRegistry#planOf(Class)}, which validates and keeps them.
+ */
+@Getter
+public class DeleteGraphPlan {
+
+  static final String EDGE_COLUMN = "edge_index";
+  static final String ID_COLUMN   = "found_id";
+
+  private final Class<?>    entity;
+  /** From `@Table`, null if the entity has none */
+  private final String      table;
+  /** `DELETE FROM table WHERE id IN (:ids)`, null without a table */
+  private final String      deleteSQL;
+  private final List<Edge>  edges;
+
+  DeleteGraphPlan(Class<?> entity) {
+    this.entity    = entity;
+    Table tableAnn = entity.getAnnotation(Table.class);
+    this.table     = Objects.isNull(tableAnn) ? null : tableAnn.name();
+    this.deleteSQL = Objects.isNull(table) ? null : renderDeleteSQL(table, DeleteGraphJoinType.OneToMany, null);
+
+    List<Edge> holder = new ArrayList<>();
+    DeleteGraphs graphs = entity.getAnnotation(DeleteGraphs.class);
+    if (Objects.nonNull(graphs)) {
+      for (DeleteGraph deleteGraph : graphs.value()) {
+        holder.add(new Edge(table, deleteGraph));
+      }
+    }
+    this.edges = Collections.unmodifiableList(holder);
+  }
+
+  static String renderDeleteSQL(String table, DeleteGraphJoinType joinType, String joinField) {
+    if (DeleteGraphJoinType.ManyToMany.equals(joinType)) return "DELETE FROM " + table + " WHERE " + joinField + " IN (:ids)";
+    return "DELETE FROM " + table + " WHERE id IN (:ids)";
+  }
+
+  /**
+   * One {@link DeleteGraph} of the entity. The child node deletes from {@link #childTable}: the target's `@Table`,
+   * or {@link DeleteGraph#table()} (a relation table) when the target has none.
+   */
+  @Getter
+  public static class Edge {
+    private final DeleteGraph         deleteGraph;
+    private final Class<?>            target;
+    private final DeleteGraphJoinType joinType;
+    private final String              joinField;
+    /** The table the candidate ids are looked up in */
+    private final String              targetTable;
+    private final String              childTable;
+    /** Only set when the target has no `@Table`, the child then deletes by this field */
+    private final String              childJoinField;
+    private final String              childDeleteSQL;
+    /** `AS edge_index, ... IN (:`, completed with the edge index and parameter name. Null if the parent table is unknown */
+    private final String              lookupSQL;
+
+    private Edge(String parentTable, DeleteGraph deleteGraph) {
+      this.deleteGraph    = deleteGraph;
+      this.target         = deleteGraph.target();
+      this.joinType       = deleteGraph.joinType();
+      this.joinField      = deleteGraph.joinField();
+      Table tableAnn      = target.getAnnotation(Table.class);
+      this.targetTable    = Objects.isNull(tableAnn) ? deleteGraph.table() : tableAnn.name();
+      this.childTable     = targetTable;
+      this.childJoinField = Objects.isNull(tableAnn) ? joinField : null;
+      this.childDeleteSQL = renderDeleteSQL(childTable, joinType, childJoinField);
+      this.lookupSQL      = DeleteGraphJoinType.OneToOne.equals(joinType) && Objects.isNull(parentTable) ? null : renderLookup(parentTable);
+    }
+
+    private String renderLookup(String parentTable) {
+      if (DeleteGraphJoinType.OneToOne.equals(joinType)) {
+        return " AS " + EDGE_COLUMN + ", " + joinField + " AS " + ID_COLUMN + " FROM " + parentTable + " WHERE id IN (:";
+      } else if (DeleteGraphJoinType.ManyToMany.equals(joinType)) {
+        return " AS " + EDGE_COLUMN + ", " + joinField + " AS " + ID_COLUMN + " FROM " + targetTable + " WHERE " + joinField + " IN (:";
+      }
+      return " AS " + EDGE_COLUMN + ", id AS " + ID_COLUMN + " FROM " + targetTable + " WHERE " + joinField + " IN (:";
+    }
+
+    /** @param parentTable Table of the node this edge starts from, only read when it is not part of the plan */
+    public String lookupSQL(String parentTable, int edgeIndex, String param) {
+      String rendered = Objects.nonNull(lookupSQL) ? lookupSQL : renderLookup(parentTable);
+      return "SELECT " + edgeIndex + rendered + param + ")";
+    }
+  }
+}
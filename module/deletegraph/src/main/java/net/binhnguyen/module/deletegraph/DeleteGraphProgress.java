@@ -0,0 +1,63 @@
+package net.binhnguyen.module.deletegraph;
+
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage State of a delete graph execution: the root ids still to delete, what has been deleted so far
+ *        and every table the graph touched. <br/>
+ *        When a {@link DeleteGraphExecutionMode#CHUNKED} delete fails, the committed chunks stay deleted and
+ *        {@link #getRemainingIds()} holds the rest. Pass the same progress to {@link DeleteGraphExecutor} again to resume.
+ */
+@Getter
+public class DeleteGraphProgress {
+
+  private final int         totalIds;
+  private final List<Long>  remainingIds;
+  private final Set<String> tables = new HashSet<>();
+  private long              deletedIds;
+  /** Root ids not deleted because another transaction held them, see {@link DeleteGraphOptions#isSkipLocked()} */
+  private long              skippedIds;
+  private int               committedChunks;
+
+  public DeleteGraphProgress(List<Long> ids) {
+    this.totalIds     = ids.size();
+    this.remainingIds = new ArrayList<>(ids);
+  }
+
+  public boolean isDone() {
+    return remainingIds.isEmpty();
+  }
+
+  /** @return Copy of the next {@code size} remaining ids */
+  List<Long> nextChunk(int size) {
+    return new ArrayList<>(remainingIds.subList(0, Math.min(size, remainingIds.size())));
+  }
+
+  void completeChunk(int size, int deleted, boolean committed) {
+    remainingIds.subList(0, size).clear();
+    deletedIds += deleted;
+    skippedIds += size - deleted;
+    if (committed) committedChunks++;
+  }
+
+  /** Ascending, the order deadlock safe deletes lock their roots in */
+  void sortRemainingIds() {
+    Collections.sort(remainingIds);
+  }
+
+  void addTables(Collection<String> touched) {
+    tables.addAll(touched);
+  }
+
+  public List<Long> getRemainingIds() {
+    return Collections.unmodifiableList(remainingIds);
+  }
+
+  public Set<String> getTables() {
+    return Collections.unmodifiableSet(tables);
+  }
+}
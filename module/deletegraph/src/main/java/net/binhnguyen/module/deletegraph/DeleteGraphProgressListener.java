@@ -0,0 +1,12 @@
+package net.binhnguyen.module.deletegraph;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Called after each committed chunk of a {@link DeleteGraphExecutionMode#CHUNKED} delete, on the deleting thread.
+ */
+@FunctionalInterface
+public interface DeleteGraphProgressListener {
+
+  void onChunkCommitted(DeleteGraphProgress progress);
+}
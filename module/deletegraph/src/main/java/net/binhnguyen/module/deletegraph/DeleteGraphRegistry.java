@@ -0,0 +1,220 @@
+package net.binhnguyen.module.deletegraph;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.utils.DBConnectUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Scan every `@DeleteGraphs` entity under `deletegraph.scan-packages` at startup, compile its {@link DeleteGraphPlan}
+ *        and validate it, so a bad annotation fails the boot instead of a delete. Checks: <br/>
+ *        - Every scanned entity has a `@Table`, every edge a target table (`@Table` of the target or {@link DeleteGraph#table()}). <br/>
+ *        - Every edge has a join field, and a ManyToMany edge points at a relation table (a target without `@Table`). <br/>
+ *        - No cycle between entities. A self referencing tree (e.g. categories) is a cycle too, with
+ *          `deletegraph.allow-cycles=true` cycles are only logged, the cascade ends when a level only finds rows
+ *          already in the graph (see {@link DeleteGraphBuilder}). <br/>
+ *        - With `deletegraph.validate-schema=true`, the tables and join columns exist in information_schema. <br/>
+ *        It is the single source of plans, see {@link #planOf(Class)}: an entity outside the scanned packages is compiled
+ *        on first use and goes through the same checks (but the schema one) before it is used.
+ */
+@Component @Slf4j
+public class DeleteGraphRegistry {
+
+  @Autowired(required = false)
+  private DataSource dataSource;
+
+  @Value("${deletegraph.scan-packages:net.binhnguyen}")
+  private String[] scanPackages;
+
+  @Value("${deletegraph.validate-schema:false}")
+  private boolean validateSchema;
+
+  @Value("${deletegraph.allow-cycles:false}")
+  private boolean allowCycles;
+
+  /** Every validated plan, the scanned ones and the ones compiled on first use */
+  private static final Map<Class<?>, DeleteGraphPlan> PLANS = new ConcurrentHashMap<>();
+  /** `deletegraph.allow-cycles` of the started registry, for plans compiled on first use */
+  private static volatile boolean cyclesAllowed;
+
+  /** The scanned plans */
+  private final Map<Class<?>, DeleteGraphPlan> plans = new LinkedHashMap<>();
+
+  @PostConstruct
+  public void init() {
+    cyclesAllowed = allowCycles;
+    for (Class<?> entity : scanEntities()) {
+      plans.put(entity, new DeleteGraphPlan(entity));
+    }
+    List<String> problems = validate();
+    if (!problems.isEmpty()) {
+      throw new IllegalStateException("Invalid delete graphs:\n  " + String.join("\n  ", problems));
+    }
+    PLANS.putAll(plans);
+    log.info("Compiled {} delete graph plans", plans.size());
+  }
+
+  /**
+   * The plan of {@code entity}. One that was not scanned at startup is compiled and checked on first use, then kept.
+   * @throws IllegalStateException If the plan compiled on first use is invalid
+   */
+  public static DeleteGraphPlan planOf(Class<?> entity) {
+    DeleteGraphPlan plan = PLANS.get(entity);
+    if (Objects.nonNull(plan)) return plan;
+
+    plan = new DeleteGraphPlan(entity);
+    List<String> problems = checkPlan(plan, new LinkedHashMap<>());
+    List<String> cycles = findCycles(List.of(entity), new HashMap<>(Map.of(entity, plan)));
+    if (cyclesAllowed) cycles.forEach(cycle -> log.warn("Delete graph {}", cycle));
+    else problems.addAll(cycles);
+    if (!problems.isEmpty()) {
+      throw new IllegalStateException("Invalid delete graph of " + entity.getName() + ":\n  " + String.join("\n  ", problems));
+    }
+    DeleteGraphPlan known = PLANS.putIfAbsent(entity, plan);
+    return Objects.nonNull(known) ? known : plan;
+  }
+
+  public DeleteGraphPlan getPlan(Class<?> entity) {
+    return planOf(entity);
+  }
+
+  public Collection<DeleteGraphPlan> getPlans() {
+    return Collections.unmodifiableCollection(plans.values());
+  }
+
+  private List<Class<?>> scanEntities() {
+    ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+    scanner.addIncludeFilter(new AnnotationTypeFilter(DeleteGraphs.class));
+    List<Class<?>> entities = new ArrayList<>();
+    for (String scanPackage : scanPackages) {
+      for (BeanDefinition candidate : scanner.findCandidateComponents(scanPackage.trim())) {
+        entities.add(ClassUtils.resolveClassName(Objects.requireNonNull(candidate.getBeanClassName()), ClassUtils.getDefaultClassLoader()));
+      }
+    }
+    return entities;
+  }
+
+  /** @return Every problem found in the scanned plans, empty if all of them are valid */
+  public List<String> validate() {
+    List<String> problems = new ArrayList<>();
+    Map<String, Set<String>> requiredColumns = new LinkedHashMap<>();
+    for (DeleteGraphPlan plan : plans.values()) {
+      problems.addAll(checkPlan(plan, requiredColumns));
+    }
+    List<String> cycles = findCycles(plans.keySet(), new HashMap<>(plans));
+    if (allowCycles) cycles.forEach(cycle -> log.warn("Delete graph {}", cycle));
+    else problems.addAll(cycles);
+    if (validateSchema) problems.addAll(validateSchema(requiredColumns));
+    return problems;
+  }
+
+  /**
+   * Check the tables and join fields of one plan, and collect the columns its lookups read into {@code requiredColumns}.
+   * An entity without `@DeleteGraphs` (e.g. the target of a ManyToMany edge) is a leaf, it may have no `@Table`.
+   */
+  private static List<String> checkPlan(DeleteGraphPlan plan, Map<String, Set<String>> requiredColumns) {
+    List<String> problems = new ArrayList<>();
+    String entityName = plan.getEntity().getSimpleName();
+    if (Objects.nonNull(plan.getTable())) requiredColumns.computeIfAbsent(plan.getTable(), table -> new LinkedHashSet<>()).add("id");
+    else if (plan.getEntity().isAnnotationPresent(DeleteGraphs.class)) problems.add(entityName + ": no @Table");
+
+    for (DeleteGraphPlan.Edge edge : plan.getEdges()) {
+      String edgeName = entityName + " -> " + edge.getTarget().getSimpleName() + " (" + edge.getJoinType() + ")";
+      if (Objects.isNull(edge.getTargetTable()) || edge.getTargetTable().isBlank()) {
+        problems.add(edgeName + ": no target table, set @Table on the target or table() on the @DeleteGraph");
+        continue;
+      }
+      if (Objects.isNull(edge.getJoinField()) || edge.getJoinField().isBlank()) {
+        problems.add(edgeName + ": no join field");
+        continue;
+      }
+      if (DeleteGraphJoinType.ManyToMany.equals(edge.getJoinType()) && Objects.isNull(edge.getChildJoinField())) {
+        problems.add(edgeName + ": ManyToMany needs a relation table, the target must not have @Table");
+      }
+      // The column each lookup reads
+      if (DeleteGraphJoinType.OneToOne.equals(edge.getJoinType())) {
+        if (Objects.nonNull(plan.getTable())) requiredColumns.computeIfAbsent(plan.getTable(), table -> new LinkedHashSet<>()).add(edge.getJoinField());
+      } else {
+        requiredColumns.computeIfAbsent(edge.getTargetTable(), table -> new LinkedHashSet<>()).add(edge.getJoinField());
+      }
+    }
+    return problems;
+  }
+
+  /** @param compiled Plans to walk, completed with the validated ones and compiled on the way for the others */
+  private static List<String> findCycles(Collection<Class<?>> entities, Map<Class<?>, DeleteGraphPlan> compiled) {
+    List<String> cycles = new ArrayList<>();
+    Set<Class<?>> done = new HashSet<>();
+    for (Class<?> entity : entities) {
+      findCycles(entity, new ArrayList<>(), done, cycles, compiled);
+    }
+    return cycles;
+  }
+
+  private static void findCycles(Class<?> entity, List<Class<?>> path, Set<Class<?>> done, List<String> cycles, Map<Class<?>, DeleteGraphPlan> compiled) {
+    int seen = path.indexOf(entity);
+    if (seen >= 0) {
+      StringJoiner cycle = new StringJoiner(" -> ", "Cycle: ", "");
+      for (Class<?> member : path.subList(seen, path.size())) {
+        cycle.add(member.getSimpleName());
+      }
+      cycles.add(cycle.add(entity.getSimpleName()).toString());
+      return;
+    }
+    if (!done.add(entity)) return;
+
+    path.add(entity);
+    DeleteGraphPlan plan = compiled.computeIfAbsent(entity, target -> Objects.requireNonNullElseGet(PLANS.get(target), () -> new DeleteGraphPlan(target)));
+    for (DeleteGraphPlan.Edge edge : plan.getEdges()) {
+      if (Object.class.equals(edge.getTarget())) continue;
+      findCycles(edge.getTarget(), path, done, cycles, compiled);
+    }
+    path.removeLast();
+  }
+
+  private List<String> validateSchema(Map<String, Set<String>> requiredColumns) {
+    if (Objects.isNull(dataSource)) {
+      log.warn("No DataSource, delete graph tables are not checked against the schema");
+      return List.of();
+    }
+    List<String> problems = new ArrayList<>();
+    try (DBConnectUtils connUtils = new DBConnectUtils(dataSource)) {
+      try {
+        List<Record> columns = connUtils.execute(
+          "SELECT table_name, column_name FROM information_schema.columns WHERE table_schema = ANY (current_schemas(false)) AND table_name IN (:tables)",
+          new Record("tables", new ArrayList<>(requiredColumns.keySet()))
+        );
+        Map<String, Set<String>> existing = new HashMap<>();
+        for (Record column : columns) {
+          existing.computeIfAbsent(String.valueOf(column.get("table_name")), table -> new HashSet<>()).add(String.valueOf(column.get("column_name")));
+        }
+        for (Map.Entry<String, Set<String>> required : requiredColumns.entrySet()) {
+          Set<String> tableColumns = existing.get(required.getKey());
+          if (Objects.isNull(tableColumns)) {
+            problems.add("Table " + required.getKey() + " does not exist");
+            continue;
+          }
+          for (String column : required.getValue()) {
+            if (!tableColumns.contains(column)) problems.add("Column " + required.getKey() + "." + column + " does not exist");
+          }
+        }
+      } finally {
+        connUtils.rollback();
+      }
+    }
+    return problems;
+  }
+}
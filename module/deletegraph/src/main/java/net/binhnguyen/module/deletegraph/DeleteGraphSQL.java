@@ -9,6 +9,7 @@ import net.binhnguyen.lib.utils.DBConnectUtils;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Bình Nguyễn
@@ -20,8 +21,14 @@ import java.util.Objects;
 @Setter
 public class DeleteGraphSQL {
 
+  /** Table this node deletes from, null if unknown */
+  private String table;
+
   private String deleteSQL;
 
+  /** Column the DELETE filters on: `id`, or the join field of a relation table */
+  private String keyColumn = "id";
+
   /**
    * In a Query, there are variables highlighted by `:`. e.g :key1, :key2.
    * @see DBConnectUtils#assignSqlHolderWithValue(String, Record) How to replace those variables with actual values? */
@@ -38,6 +45,11 @@ public class DeleteGraphSQL {
     this.sqlKeyValueMap = sqlKeyValueMap;
   }
 
+  public DeleteGraphSQL(String table, String deleteSQL, Record sqlKeyValueMap) {
+    this(deleteSQL, sqlKeyValueMap);
+    this.table = table;
+  }
+
   public void addPreDelete(DeleteGraphSQL child) {
     if (Objects.isNull(preDeleteChildren)) preDeleteChildren = new ArrayList<>();
     preDeleteChildren.add(child);
@@ -49,24 +61,50 @@ public class DeleteGraphSQL {
   }
 
   public int executeDelete(DBConnectUtils connUtils) {
+    return executeDelete(connUtils, true);
+  }
+
+  /** @param commitPerNode Commit after each node. Otherwise the whole graph stays in the caller's transaction */
+  public int executeDelete(DBConnectUtils connUtils, boolean commitPerNode) {
     if (Objects.nonNull(preDeleteChildren)) {
       for (DeleteGraphSQL child : preDeleteChildren) {
-        if (Objects.nonNull(child)) child.executeDelete(connUtils);
+        if (Objects.nonNull(child)) child.executeDelete(connUtils, commitPerNode);
       }
     }
 
-    int count = connUtils.executeUpdate(this.deleteSQL, sqlKeyValueMap);
-    log.info("EXECUTE DELETE SQL:\n  {}\n\t Removed {} Records", this.deleteSQL, count);
-    connUtils.commit();
+    int count = deleteSelf(connUtils);
+    if (commitPerNode) connUtils.commit();
 
     if (Objects.nonNull(postDeleteChildren)) {
       for (DeleteGraphSQL child : postDeleteChildren) {
-        if (Objects.nonNull(child)) child.executeDelete(connUtils);
+        if (Objects.nonNull(child)) child.executeDelete(connUtils, commitPerNode);
       }
     }
     return count;
   }
 
+  /** Delete this node only, its children are left to the caller */
+  public int deleteSelf(DBConnectUtils connUtils) {
+    int count = connUtils.executeUpdate(this.deleteSQL, sqlKeyValueMap);
+    log.debug("EXECUTE DELETE SQL:\n  {}\n\t Removed {} Records", this.deleteSQL, count);
+    return count;
+  }
+
+  /** @return Tables of this node and all of its children */
+  public Set<String> collectTables(Set<String> holder) {
+    if (Objects.nonNull(table)) holder.add(table);
+    for (List<DeleteGraphSQL> children : List.of(orEmpty(preDeleteChildren), orEmpty(postDeleteChildren))) {
+      for (DeleteGraphSQL child : children) {
+        if (Objects.nonNull(child)) child.collectTables(holder);
+      }
+    }
+    return holder;
+  }
+
+  private static List<DeleteGraphSQL> orEmpty(List<DeleteGraphSQL> children) {
+    return Objects.isNull(children) ? List.of() : children;
+  }
+
   public void dumpSql() {
     if (Objects.nonNull(preDeleteChildren)) {
       for (DeleteGraphSQL child : preDeleteChildren) {
@@ -0,0 +1,127 @@
+package net.binhnguyen.module.deletegraph;
+
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.utils.DBConnectUtils;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Run a {@link DeleteGraphSQL} tree with independent sibling subtrees in parallel. <br/>
+ *        - Siblings are grouped by the tables their subtrees touch, groups sharing a table run one after another. <br/>
+ *        - Each extra group gets a connection of its own and commits per node. The first group stays on the caller's connection. <br/>
+ *        - A node is only deleted once all of its pre-delete children are done (and committed), post-delete children start after it. <br/>
+ *        - At most {@code parallelism} connections delete at once. When none is free, a group runs on the current connection,
+ *          so nested subtrees never wait for a connection held by their own ancestors.
+ */
+@Slf4j
+class ParallelDeleteRunner implements AutoCloseable {
+
+  private final DataSource      dataSource;
+  private final Semaphore       permits;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  ParallelDeleteRunner(int parallelism, DataSource dataSource) {
+    if (Objects.isNull(dataSource)) throw new IllegalArgumentException("Parallel delete needs a DataSource for its extra connections");
+    this.dataSource = dataSource;
+    this.permits    = new Semaphore(parallelism - 1);
+  }
+
+  /** @return Number of deleted rows of {@code node} */
+  int execute(DeleteGraphSQL node, DBConnectUtils connUtils) {
+    runSiblings(node.getPreDeleteChildren(), connUtils);
+    int count = node.deleteSelf(connUtils);
+    connUtils.commit();
+    runSiblings(node.getPostDeleteChildren(), connUtils);
+    return count;
+  }
+
+  private void runSiblings(List<DeleteGraphSQL> children, DBConnectUtils connUtils) {
+    if (Objects.isNull(children) || children.isEmpty()) return;
+    List<List<DeleteGraphSQL>> groups = groupByTables(children);
+    if (groups.isEmpty()) return;
+    if (groups.size() == 1) {
+      runGroup(groups.getFirst(), connUtils);
+      return;
+    }
+
+    List<Future<?>> running = new ArrayList<>();
+    List<List<DeleteGraphSQL>> inline = new ArrayList<>();
+    inline.add(groups.getFirst());
+    for (List<DeleteGraphSQL> group : groups.subList(1, groups.size())) {
+      if (permits.tryAcquire()) running.add(executor.submit(() -> runOnOwnConnection(group)));
+      else inline.add(group);
+    }
+
+    RuntimeException failure = null;
+    try {
+      for (List<DeleteGraphSQL> group : inline) {
+        runGroup(group, connUtils);
+      }
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+    // Wait for every group, a parent must not be deleted (or the caller return) while a subtree is still running
+    for (Future<?> future : running) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (Objects.isNull(failure)) {
+          failure = e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause().getMessage());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (Objects.isNull(failure)) failure = new RuntimeException("Interrupted while waiting for delete subtrees");
+      }
+    }
+    if (Objects.nonNull(failure)) throw failure;
+  }
+
+  private void runOnOwnConnection(List<DeleteGraphSQL> group) {
+    try (DBConnectUtils connUtils = new DBConnectUtils(dataSource)) {
+      try {
+        runGroup(group, connUtils);
+      } catch (RuntimeException e) {
+        connUtils.rollback();
+        throw e;
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  private void runGroup(List<DeleteGraphSQL> group, DBConnectUtils connUtils) {
+    for (DeleteGraphSQL child : group) {
+      execute(child, connUtils);
+    }
+  }
+
+  /** Siblings whose subtrees share a table end up in the same group, in their original order */
+  static List<List<DeleteGraphSQL>> groupByTables(List<DeleteGraphSQL> children) {
+    List<List<DeleteGraphSQL>> groups = new ArrayList<>();
+    List<Set<String>> groupTables = new ArrayList<>();
+    for (DeleteGraphSQL child : children) {
+      if (Objects.isNull(child)) continue;
+      Set<String> tables = child.collectTables(new HashSet<>());
+      List<DeleteGraphSQL> merged = new ArrayList<>();
+      Set<String> mergedTables = new HashSet<>(tables);
+      for (int i = groups.size() - 1; i >= 0; i--) {
+        if (Collections.disjoint(groupTables.get(i), tables)) continue;
+        merged.addAll(0, groups.remove(i));
+        mergedTables.addAll(groupTables.remove(i));
+      }
+      merged.add(child);
+      groups.add(merged);
+      groupTables.add(mergedTables);
+    }
+    return groups;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,55 @@
+package net.binhnguyen.module.deletegraph;
+
+import net.binhnguyen.lib.common.Record;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Same package as {@link ParallelDeleteRunner}, which is package private */
+public class ParallelDeleteRunnerUnitTest {
+
+  @Test
+  @Tag("unit")
+  public void testSiblingsSharingATableAreGrouped() {
+    DeleteGraphSQL items = node("order_item", node("note"));
+    DeleteGraphSQL payments = node("payment");
+    DeleteGraphSQL shipments = node("shipment", node("note"));
+    DeleteGraphSQL audits = node("audit");
+
+    List<List<DeleteGraphSQL>> groups = ParallelDeleteRunner.groupByTables(Arrays.asList(items, payments, null, shipments, audits));
+    Assertions.assertEquals(List.of(List.of(payments), List.of(items, shipments), List.of(audits)), groups);
+  }
+
+  @Test
+  @Tag("unit")
+  public void testBridgingSiblingMergesGroups() {
+    DeleteGraphSQL items = node("order_item");
+    DeleteGraphSQL payments = node("payment");
+    DeleteGraphSQL refunds = node("refund", node("payment"), node("order_item"));
+
+    List<List<DeleteGraphSQL>> groups = ParallelDeleteRunner.groupByTables(List.of(items, payments, refunds));
+    Assertions.assertEquals(List.of(List.of(items, payments, refunds)), groups);
+  }
+
+  @Test
+  @Tag("unit")
+  public void testIndependentSiblings() {
+    DeleteGraphSQL items = node("order_item");
+    DeleteGraphSQL payments = node("payment");
+
+    Assertions.assertEquals(List.of(List.of(items), List.of(payments)), ParallelDeleteRunner.groupByTables(List.of(items, payments)));
+    Assertions.assertTrue(ParallelDeleteRunner.groupByTables(Arrays.asList((DeleteGraphSQL) null)).isEmpty());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new ParallelDeleteRunner(4, null));
+  }
+
+  private static DeleteGraphSQL node(String table, DeleteGraphSQL... children) {
+    DeleteGraphSQL node = new DeleteGraphSQL(table, DeleteGraphPlan.renderDeleteSQL(table, DeleteGraphJoinType.OneToMany, null), new Record());
+    for (DeleteGraphSQL child : children) {
+      node.addPreDelete(child);
+    }
+    return node;
+  }
+}
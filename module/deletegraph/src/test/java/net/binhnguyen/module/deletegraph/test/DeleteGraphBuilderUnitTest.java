@@ -0,0 +1,89 @@
+package net.binhnguyen.module.deletegraph.test;
+
+import jakarta.persistence.Table;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.utils.DBConnectUtils;
+import net.binhnguyen.module.deletegraph.DeleteGraph;
+import net.binhnguyen.module.deletegraph.DeleteGraphBuilder;
+import net.binhnguyen.module.deletegraph.DeleteGraphJoinType;
+import net.binhnguyen.module.deletegraph.DeleteGraphs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DeleteGraphBuilderUnitTest {
+
+  @Table(name = "purchase_order")
+  @DeleteGraphs({
+    @DeleteGraph(target = OrderItem.class, joinType = DeleteGraphJoinType.OneToMany, joinField = "order_id"),
+    @DeleteGraph(target = Note.class, joinType = DeleteGraphJoinType.OneToMany, joinField = "order_id"),
+  })
+  public static class PurchaseOrder {}
+
+  @Table(name = "order_item")
+  @DeleteGraphs({ @DeleteGraph(target = Note.class, joinType = DeleteGraphJoinType.OneToMany, joinField = "item_id") })
+  public static class OrderItem {}
+
+  @Table(name = "note")
+  public static class Note {}
+
+  /** Answers each level's lookup with the ids found per `FROM table WHERE column` of its branches */
+  private static DBConnectUtils lookups(Map<String, List<Long>> idsByLookup) {
+    return new DBConnectUtils((Connection) null) {
+      @Override
+      public List<Record> execute(String SQL_QUERY_TEMPLATE, Record keyValues) {
+        List<Record> rows = new ArrayList<>();
+        String[] branches = SQL_QUERY_TEMPLATE.split("\nUNION ALL\n");
+        for (int i = 0; i < branches.length; i++) {
+          for (Map.Entry<String, List<Long>> lookup : idsByLookup.entrySet()) {
+            if (!branches[i].contains(lookup.getKey())) continue;
+            for (Long id : lookup.getValue()) {
+              Record row = new Record("edge_index", i);
+              row.put("found_id", id);
+              rows.add(row);
+            }
+          }
+        }
+        return rows;
+      }
+    };
+  }
+
+  @Test
+  @Tag("unit")
+  public void testEdgeOnlyGetsNewIds() {
+    DBConnectUtils connUtils = lookups(Map.of(
+      "FROM order_item WHERE order_id", List.of(10L),
+      "FROM note WHERE order_id", List.of(1L, 2L),
+      "FROM note WHERE item_id", List.of(2L, 3L)
+    ));
+    DeleteGraphBuilder graph = new DeleteGraphBuilder(connUtils, PurchaseOrder.class, List.of(100L));
+
+    List<DeleteGraphBuilder> children = graph.getChildGraphs();
+    Assertions.assertEquals(2, children.size());
+    Assertions.assertEquals(List.of(10L), children.get(0).getTargetIds());
+    Assertions.assertEquals(List.of(1L, 2L), children.get(1).getTargetIds());
+    // Note 2 is already deleted under the order
+    Assertions.assertEquals(List.of(3L), children.get(0).getChildGraphs().getFirst().getTargetIds());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testEdgeWithoutNewIdsIsSkipped() {
+    DBConnectUtils connUtils = lookups(Map.of(
+      "FROM order_item WHERE order_id", List.of(10L),
+      "FROM note WHERE order_id", List.of(1L, 2L),
+      "FROM note WHERE item_id", List.of(2L, 1L)
+    ));
+    DeleteGraphBuilder graph = new DeleteGraphBuilder(connUtils, PurchaseOrder.class, List.of(100L));
+
+    Assertions.assertEquals(2, graph.getChildGraphs().size());
+    Assertions.assertTrue(graph.getChildGraphs().get(0).getChildGraphs().isEmpty());
+    Assertions.assertEquals(List.of("order_item", "note"), graph.getChildGraphs().stream().map(DeleteGraphBuilder::getTable).toList());
+  }
+}
@@ -0,0 +1,140 @@
+package net.binhnguyen.module.deletegraph.test;
+
+import jakarta.persistence.Table;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.sql.SqlExecutionException;
+import net.binhnguyen.lib.utils.DBConnectUtils;
+import net.binhnguyen.module.deletegraph.DeleteGraphExecutionMode;
+import net.binhnguyen.module.deletegraph.DeleteGraphExecutor;
+import net.binhnguyen.module.deletegraph.DeleteGraphOptions;
+import net.binhnguyen.module.deletegraph.DeleteGraphProgress;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class DeleteGraphExecutorUnitTest {
+
+  @Table(name = "ticket")
+  public static class Ticket {}
+
+  /** Fails the first {@link #failures} deletes with {@link #error}, then deletes every requested id */
+  private static class FlakyTicketTable extends DBConnectUtils {
+    private final RuntimeException  error;
+    private final List<String>      statements = new ArrayList<>();
+    private int                     failures;
+    private int                     rollbacks;
+
+    private FlakyTicketTable(int failures, RuntimeException error) {
+      super((Connection) null);
+      this.failures = failures;
+      this.error    = error;
+    }
+
+    @Override
+    public List<Record> execute(String SQL_QUERY_TEMPLATE, Record keyValues) {
+      statements.add(SQL_QUERY_TEMPLATE);
+      List<Record> rows = new ArrayList<>();
+      if (!SQL_QUERY_TEMPLATE.startsWith("SELECT id FROM ticket")) return rows;
+      for (Long id : ids(keyValues)) {
+        rows.add(new Record("id", id));
+      }
+      return rows;
+    }
+
+    @Override
+    public int executeUpdate(String sql, Record keyValues) {
+      statements.add(sql);
+      if (failures > 0) {
+        failures--;
+        throw error;
+      }
+      return ids(keyValues).size();
+    }
+
+    @Override
+    public void commit() {}
+
+    @Override
+    public void rollback() {
+      rollbacks++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Long> ids(Record keyValues) {
+      return (Collection<Long>) keyValues.get("ids");
+    }
+  }
+
+  private static SqlExecutionException deadlock() {
+    return new SqlExecutionException(new SQLException("deadlock detected", SqlExecutionException.DEADLOCK_DETECTED));
+  }
+
+  private static DeleteGraphOptions deadlockSafe(long backoffMillis) {
+    DeleteGraphOptions options = DeleteGraphOptions.deadlockSafe(false);
+    options.setRetryBackoffMillis(backoffMillis);
+    return options;
+  }
+
+  @Test
+  @Tag("unit")
+  public void testDeadlockIsRetriedAfterBackoff() {
+    FlakyTicketTable connUtils = new FlakyTicketTable(2, deadlock());
+    long start = System.nanoTime();
+    DeleteGraphProgress progress = DeleteGraphExecutor.execute(connUtils, Ticket.class, List.of(3L, 1L, 2L), deadlockSafe(20));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    Assertions.assertTrue(progress.isDone());
+    Assertions.assertEquals(3, progress.getDeletedIds());
+    Assertions.assertEquals(2, connUtils.rollbacks);
+    // 20ms before the first retry, 40ms before the second, plus jitter
+    Assertions.assertTrue(elapsedMillis >= 60, "Backoff of " + elapsedMillis + "ms");
+    Assertions.assertEquals("SELECT id FROM ticket WHERE id IN (:ids) ORDER BY id FOR UPDATE", connUtils.statements.getFirst());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testRetriesAreBounded() {
+    FlakyTicketTable connUtils = new FlakyTicketTable(10, deadlock());
+    DeleteGraphOptions options = deadlockSafe(1);
+    options.setMaxRetries(2);
+
+    DeleteGraphProgress progress = new DeleteGraphProgress(List.of(1L));
+    Assertions.assertThrows(SqlExecutionException.class, () -> DeleteGraphExecutor.execute(connUtils, Ticket.class, progress, options));
+    Assertions.assertEquals(7, connUtils.failures);
+    Assertions.assertEquals(List.of(1L), progress.getRemainingIds());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testOnlyRetryableErrorsAreRetried() {
+    SqlExecutionException violation = new SqlExecutionException(new SQLException("violates foreign key", "23503"));
+    FlakyTicketTable connUtils = new FlakyTicketTable(1, violation);
+    Assertions.assertThrows(SqlExecutionException.class, () -> DeleteGraphExecutor.execute(connUtils, Ticket.class, List.of(1L), deadlockSafe(1)));
+    Assertions.assertEquals(0, connUtils.rollbacks);
+
+    // Without the transaction to itself, an ATOMIC delete can't roll back to retry
+    FlakyTicketTable shared = new FlakyTicketTable(1, deadlock());
+    DeleteGraphProgress progress = new DeleteGraphProgress(List.of(1L));
+    Assertions.assertThrows(SqlExecutionException.class, () -> DeleteGraphExecutor.execute(shared, Ticket.class, progress, deadlockSafe(1), false));
+    Assertions.assertEquals(0, shared.rollbacks);
+
+    FlakyTicketTable unsafe = new FlakyTicketTable(1, deadlock());
+    Assertions.assertThrows(SqlExecutionException.class, () -> DeleteGraphExecutor.execute(unsafe, Ticket.class, List.of(1L), DeleteGraphOptions.atomic()));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testPerNodeCantBeDeadlockSafe() {
+    DeleteGraphOptions options = deadlockSafe(1);
+    options.setMode(DeleteGraphExecutionMode.PER_NODE);
+    FlakyTicketTable connUtils = new FlakyTicketTable(0, deadlock());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> DeleteGraphExecutor.execute(connUtils, Ticket.class, List.of(1L), options));
+    Assertions.assertTrue(connUtils.statements.isEmpty());
+  }
+}
@@ -0,0 +1,127 @@
+package net.binhnguyen.module.deletegraph.test;
+
+import jakarta.persistence.Table;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.utils.DBConnectUtils;
+import net.binhnguyen.module.deletegraph.DeleteGraphExecutor;
+import net.binhnguyen.module.deletegraph.DeleteGraphOptions;
+import net.binhnguyen.module.deletegraph.DeleteGraphProgress;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class DeleteGraphProgressUnitTest {
+
+  @Table(name = "ticket")
+  public static class Ticket {}
+
+  /** Deletes every requested id, except the ids in {@link #failing}. Root locks skip the ids in {@link #held} */
+  private static class TicketTable extends DBConnectUtils {
+    private final Set<Long>  held    = new HashSet<>();
+    private final Set<Long>  failing = new HashSet<>();
+    private final List<Long> deleted = new ArrayList<>();
+    private int              commits;
+    private int              rollbacks;
+
+    private TicketTable() {
+      super((Connection) null);
+    }
+
+    @Override
+    public List<Record> execute(String SQL_QUERY_TEMPLATE, Record keyValues) {
+      List<Record> rows = new ArrayList<>();
+      if (!SQL_QUERY_TEMPLATE.startsWith("SELECT id FROM ticket")) return rows;
+      for (Long id : ids(keyValues)) {
+        if (!held.contains(id)) rows.add(new Record("id", id));
+      }
+      return rows;
+    }
+
+    @Override
+    public int executeUpdate(String sql, Record keyValues) {
+      Collection<Long> ids = ids(keyValues);
+      for (Long id : ids) {
+        if (failing.contains(id)) throw new RuntimeException("ticket " + id + " is referenced");
+      }
+      deleted.addAll(ids);
+      return ids.size();
+    }
+
+    @Override
+    public void commit() {
+      commits++;
+    }
+
+    @Override
+    public void rollback() {
+      rollbacks++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Long> ids(Record keyValues) {
+      return (Collection<Long>) keyValues.get("ids");
+    }
+  }
+
+  @Test
+  @Tag("unit")
+  public void testChunkedCommits() {
+    TicketTable connUtils = new TicketTable();
+    List<Integer> committed = new ArrayList<>();
+    DeleteGraphOptions options = DeleteGraphOptions.chunked(3, progress -> committed.add(progress.getCommittedChunks()));
+
+    DeleteGraphProgress progress = DeleteGraphExecutor.execute(connUtils, Ticket.class, List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), options);
+    Assertions.assertTrue(progress.isDone());
+    Assertions.assertEquals(7, progress.getTotalIds());
+    Assertions.assertEquals(7, progress.getDeletedIds());
+    Assertions.assertEquals(0, progress.getSkippedIds());
+    Assertions.assertEquals(List.of(1, 2, 3), committed);
+    Assertions.assertEquals(3, connUtils.commits);
+    Assertions.assertEquals(Set.of("ticket"), progress.getTables());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testResumeAfterFailedChunk() {
+    TicketTable connUtils = new TicketTable();
+    connUtils.failing.add(5L);
+    DeleteGraphOptions options = DeleteGraphOptions.chunked(3, null);
+    DeleteGraphProgress progress = new DeleteGraphProgress(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L));
+
+    Assertions.assertThrows(RuntimeException.class, () -> DeleteGraphExecutor.execute(connUtils, Ticket.class, progress, options));
+    Assertions.assertEquals(List.of(4L, 5L, 6L, 7L), progress.getRemainingIds());
+    Assertions.assertEquals(3, progress.getDeletedIds());
+    Assertions.assertEquals(1, progress.getCommittedChunks());
+    Assertions.assertEquals(1, connUtils.rollbacks);
+
+    connUtils.failing.clear();
+    DeleteGraphExecutor.execute(connUtils, Ticket.class, progress, options);
+    Assertions.assertTrue(progress.isDone());
+    Assertions.assertEquals(7, progress.getDeletedIds());
+    Assertions.assertEquals(3, progress.getCommittedChunks());
+    Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), connUtils.deleted);
+  }
+
+  @Test
+  @Tag("unit")
+  public void testSkippedIds() {
+    TicketTable connUtils = new TicketTable();
+    connUtils.held.add(2L);
+    DeleteGraphOptions options = DeleteGraphOptions.chunked(2, null);
+    options.setDeadlockSafe(true);
+    options.setSkipLocked(true);
+
+    DeleteGraphProgress progress = DeleteGraphExecutor.execute(connUtils, Ticket.class, List.of(4L, 2L, 3L, 1L), options);
+    Assertions.assertTrue(progress.isDone());
+    Assertions.assertEquals(3, progress.getDeletedIds());
+    Assertions.assertEquals(1, progress.getSkippedIds());
+    Assertions.assertEquals(List.of(1L, 3L, 4L), connUtils.deleted);
+  }
+}
@@ -0,0 +1,59 @@
+package net.binhnguyen.module.deletegraph.test;
+
+import jakarta.persistence.Table;
+import net.binhnguyen.module.deletegraph.DeleteGraph;
+import net.binhnguyen.module.deletegraph.DeleteGraphJoinType;
+import net.binhnguyen.module.deletegraph.DeleteGraphPlan;
+import net.binhnguyen.module.deletegraph.DeleteGraphRegistry;
+import net.binhnguyen.module.deletegraph.DeleteGraphs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+public class DeleteGraphRegistryUnitTest {
+
+  @Table(name = "employee")
+  @DeleteGraphs({ @DeleteGraph(target = Address.class, joinType = DeleteGraphJoinType.OneToMany, joinField = "employee_id") })
+  public static class Employee {}
+
+  @Table(name = "address")
+  public static class Address {}
+
+  /** Neither the target nor the edge name a table */
+  @Table(name = "broken")
+  @DeleteGraphs({ @DeleteGraph(target = Unmapped.class, joinType = DeleteGraphJoinType.OneToMany, joinField = "broken_id") })
+  public static class Broken {}
+
+  public static class Unmapped {}
+
+  @Table(name = "category")
+  @DeleteGraphs({ @DeleteGraph(target = Category.class, joinType = DeleteGraphJoinType.OneToMany, joinField = "parent_id") })
+  public static class Category {}
+
+  @Test
+  @Tag("unit")
+  public void testPlanCompiledOnFirstUseIsKept() {
+    DeleteGraphPlan plan = DeleteGraphRegistry.planOf(Employee.class);
+    Assertions.assertEquals("employee", plan.getTable());
+    Assertions.assertEquals("address", plan.getEdges().getFirst().getChildTable());
+    Assertions.assertSame(plan, DeleteGraphRegistry.planOf(Employee.class));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testInvalidPlanCompiledOnFirstUseIsRejected() {
+    IllegalStateException error = Assertions.assertThrows(IllegalStateException.class, () -> DeleteGraphRegistry.planOf(Broken.class));
+    Assertions.assertTrue(error.getMessage().contains("no target table"), error.getMessage());
+    // Not kept, every lookup fails
+    Assertions.assertThrows(IllegalStateException.class, () -> DeleteGraphRegistry.planOf(Broken.class));
+
+    error = Assertions.assertThrows(IllegalStateException.class, () -> DeleteGraphRegistry.planOf(Category.class));
+    Assertions.assertTrue(error.getMessage().contains("Cycle: Category -> Category"), error.getMessage());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testLeafWithoutTable() {
+    Assertions.assertNull(DeleteGraphRegistry.planOf(Unmapped.class).getTable());
+  }
+}
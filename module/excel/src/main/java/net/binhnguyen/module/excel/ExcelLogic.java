@@ -132,8 +132,8 @@ public class ExcelLogic {
   }
 
   /**
-   * Can only read if clazz has fields that's type are String, Integer, Double, Float, etc. <br/>
-   * Don't use if clazz has fields that's type are Enum, Date, etc.
+   * Cells are read as text and converted to the field types by {@link RecordUtils}:
+   * numbers, booleans, enums (by name) and dates (`yyyy-MM-dd[ HH:mm:ss]` or ISO-8601).
    */
   public <T> List<T> readWorkbook(String pathToWorkbook, @NonNull String sheetName, @NonNull Class<T> clazz) throws IOException {
     List<Record> data = readWorkbook(pathToWorkbook, sheetName);
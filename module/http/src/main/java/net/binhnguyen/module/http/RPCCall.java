@@ -0,0 +1,29 @@
+package net.binhnguyen.module.http;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage An RPC request read by {@link RPCService#readCall}: the resolved method and its bound arguments. <br/>
+ *        Filled while the request is read, so {@link #component} and {@link #service} are known
+ *        even when a parameter fails to bind.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class RPCCall {
+  private String    version;
+  private String    component;
+  private String    service;
+  private RPCMethod method;
+  private Object[]  arguments;
+
+  public Object invoke() throws InvocationTargetException {
+    return method.invoke(arguments);
+  }
+}
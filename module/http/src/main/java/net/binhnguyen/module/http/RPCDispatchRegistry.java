@@ -0,0 +1,110 @@
+package net.binhnguyen.module.http;
+
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Dispatch table of the RPC endpoint: component (bean name) -> service (method name) -> overloads. <br/>
+ *        Every `@Service` bean is indexed when the context is refreshed, other beans on their first call,
+ *        so a request is a map lookup instead of bean lookup + introspection + a method scan.
+ *        A method that can't be bound is logged and left out, calling it answers "No method". <br/>
+ *        Overloads are resolved by arity, then by the JSON shape of the parameters (see {@link RPCMethod#accepts}),
+ *        overloads with specific parameter types first. Text binds to a number parameter only when no overload takes it as text.
+ */
+@Slf4j
+@Component
+public class RPCDispatchRegistry {
+
+  @Autowired
+  private ApplicationContext applicationContext;
+
+  private final Map<String, Map<String, List<RPCMethod>>> components = new ConcurrentHashMap<>();
+
+  @EventListener
+  public void onContextRefreshed(ContextRefreshedEvent event) {
+    if (event.getApplicationContext() != applicationContext) return;
+    components.clear();
+    Map<String, Object> services = applicationContext.getBeansWithAnnotation(Service.class);
+    services.forEach((name, bean) -> components.put(name, index(name, bean)));
+    log.info("Indexed {} RPC components", services.size());
+  }
+
+  public Map<String, List<RPCMethod>> getComponent(String component) {
+    Map<String, List<RPCMethod>> services = components.get(component);
+    if (Objects.nonNull(services)) return services;
+    Object bean = applicationContext.getBean(component);
+    return components.computeIfAbsent(component, name -> index(name, bean));
+  }
+
+  public List<RPCMethod> getOverloads(String component, String service) {
+    List<RPCMethod> overloads = getComponent(component).get(service);
+    final String noMethodMessage = MessageFormat.format("No method `{0}` in class {1}", service, component);
+    if (Objects.isNull(overloads)) throw new IllegalArgumentException(noMethodMessage);
+    return overloads;
+  }
+
+  /**
+   * @param presetArgs Arguments given by the server, they come before the request parameters
+   * @param params First token of every request parameter, in order
+   */
+  public RPCMethod resolve(String component, String service, List<Object> presetArgs, List<JsonToken> params) {
+    List<RPCMethod> overloads = getOverloads(component, service);
+    int arity = presetArgs.size() + params.size();
+    RPCMethod sameArity = null;
+    int sameArityCount = 0;
+    for (RPCMethod overload : overloads) {
+      if (overload.getArity() != arity) continue;
+      sameArity = overload;
+      sameArityCount++;
+    }
+    if (sameArityCount == 1) return sameArity;
+
+    // `"12"` fits both f(Long) and f(String): an overload taking every parameter in its natural shape wins
+    for (RPCMethod overload : overloads) {
+      if (overload.accepts(presetArgs, params, true)) return overload;
+    }
+    for (RPCMethod overload : overloads) {
+      if (overload.accepts(presetArgs, params, false)) return overload;
+    }
+    throw new IllegalArgumentException(
+      MessageFormat.format("No overload of `{0}` in class {1} accepts {2} parameters", service, component, arity)
+    );
+  }
+
+  private Map<String, List<RPCMethod>> index(String component, Object bean) {
+    Class<?> type = AopUtils.getTargetClass(bean);
+    Map<String, List<RPCMethod>> services = new HashMap<>();
+    for (Method method : type.getMethods()) {
+      if (Object.class.equals(method.getDeclaringClass())) continue;
+      if (method.isBridge() || method.isSynthetic() || Modifier.isStatic(method.getModifiers())) continue;
+      final RPCMethod rpcMethod;
+      try {
+        rpcMethod = RPCMethod.of(component, bean, method);
+      } catch (RuntimeException ex) {
+        // One method that can't be bound must not take the whole component (or the startup) down with it
+        log.warn("Skipping RPC method {}.{}, it can't be bound: {}", component, method.getName(), ex.getMessage(), ex);
+        continue;
+      }
+      services.computeIfAbsent(method.getName(), name -> new ArrayList<>()).add(rpcMethod);
+    }
+    for (List<RPCMethod> overloads : services.values()) {
+      overloads.sort(RPCMethod.SPECIFIC_FIRST);
+    }
+    return services;
+  }
+}
@@ -0,0 +1,169 @@
+package net.binhnguyen.module.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.NullNode;
+import lombok.Getter;
+import net.binhnguyen.lib.utils.DataSerializer;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage One service method callable through RPC, resolved once by {@link RPCDispatchRegistry}. <br/>
+ *        The method handle is bound to the Spring bean (the proxy if any, so `@Transactional` still applies)
+ *        and every parameter keeps a reader bound to its generic type, e.g. `List&lt;Record&gt;`.
+ */
+@Getter
+public class RPCMethod {
+
+  /** Fewer parameters first, then overloads with specific parameter types */
+  static final Comparator<RPCMethod> SPECIFIC_FIRST =
+    Comparator.comparingInt((RPCMethod overload) -> overload.parameterTypes.length).thenComparingInt(overload -> overload.looseness);
+
+  private final String        component;
+  private final String        service;
+  private final Method        method;
+  private final JavaType[]    parameterTypes;
+  private final Class<?>[]    rawParameterTypes;
+  private final int           looseness;
+
+  private final ObjectReader[]  parameterReaders;
+  private final MethodHandle    handle;
+
+  private RPCMethod(String component, Object bean, Method method) {
+    this.component = component;
+    this.service = method.getName();
+    this.method = method;
+
+    Type[] genericTypes = method.getGenericParameterTypes();
+    this.parameterTypes = new JavaType[genericTypes.length];
+    this.rawParameterTypes = new Class<?>[genericTypes.length];
+    this.parameterReaders = new ObjectReader[genericTypes.length];
+    int looseness = 0;
+    for (int i = 0; i < genericTypes.length; i++) {
+      parameterTypes[i] = DataSerializer.JSON.constructType(genericTypes[i]);
+      rawParameterTypes[i] = ClassUtils.resolvePrimitiveIfNecessary(method.getParameterTypes()[i]);
+      parameterReaders[i] = DataSerializer.JSON.readerFor(parameterTypes[i]);
+      looseness += looseness(rawParameterTypes[i]);
+    }
+    this.looseness = looseness;
+    this.handle = bind(bean, method);
+  }
+
+  static RPCMethod of(String component, Object bean, Method method) {
+    return new RPCMethod(component, bean, method);
+  }
+
+  private static MethodHandle bind(Object bean, Method method) {
+    Method invocable = AopUtils.selectInvocableMethod(method, bean.getClass());
+    MethodHandle handle;
+    try {
+      handle = MethodHandles.lookup().unreflect(invocable);
+    } catch (IllegalAccessException ex) {
+      // Public method declared in a non public class
+      invocable.setAccessible(true);
+      try {
+        handle = MethodHandles.lookup().unreflect(invocable);
+      } catch (IllegalAccessException retryEx) {
+        throw new IllegalStateException("Cannot access " + invocable, retryEx);
+      }
+    }
+    return handle
+      .bindTo(bean)
+      .asSpreader(Object[].class, method.getParameterCount())
+      .asType(MethodType.methodType(Object.class, Object[].class));
+  }
+
+  public int getArity() {
+    return parameterTypes.length;
+  }
+
+  /**
+   * @param presetArgs Arguments given by the server, they come before the request parameters
+   * @param params First token of every request parameter, so a streamed parameter is checked without being parsed
+   * @param strict Only take parameters whose JSON shape is the natural one of their type, no number from text or text from a number
+   * @return Whether the arguments fit this overload: arity first, then the JSON shape of every parameter
+   */
+  public boolean accepts(List<Object> presetArgs, List<JsonToken> params, boolean strict) {
+    if (presetArgs.size() + params.size() != getArity()) return false;
+    for (int i = 0; i < presetArgs.size(); i++) {
+      Object arg = presetArgs.get(i);
+      if (Objects.nonNull(arg) && !rawParameterTypes[i].isInstance(arg)) return false;
+    }
+    for (int i = 0; i < params.size(); i++) {
+      if (!accepts(parameterTypes[presetArgs.size() + i], params.get(i), strict)) return false;
+    }
+    return true;
+  }
+
+  static boolean accepts(JavaType type, JsonToken token, boolean strict) {
+    if (Objects.isNull(token) || JsonToken.VALUE_NULL.equals(token)) return !type.isPrimitive();
+    Class<?> raw = ClassUtils.resolvePrimitiveIfNecessary(type.getRawClass());
+    if (Object.class.equals(raw) || JsonNode.class.isAssignableFrom(raw)) return true;
+    boolean sequence = type.isCollectionLikeType() || type.isArrayType();
+    if (JsonToken.START_ARRAY.equals(token)) return sequence;
+    if (sequence) return false;
+    if (JsonToken.START_OBJECT.equals(token)) return !isScalar(raw);
+    if (token.isBoolean()) return Boolean.class.equals(raw) || (!strict && String.class.equals(raw));
+    if (token.isNumeric()) {
+      if (Number.class.isAssignableFrom(raw)) return true;
+      if (strict || type.isMapLikeType()) return false;
+      // Loosely: a string, or a date / single number creator
+      return String.class.equals(raw) || !isScalar(raw);
+    }
+    // Text binds to strings, enums, dates or single string creators, and loosely to numbers
+    if (strict && Number.class.isAssignableFrom(raw)) return false;
+    return !type.isMapLikeType() && !Boolean.class.equals(raw);
+  }
+
+  private static boolean isScalar(Class<?> raw) {
+    return Number.class.isAssignableFrom(raw) || Boolean.class.equals(raw) || CharSequence.class.isAssignableFrom(raw)
+      || Character.class.equals(raw) || raw.isEnum();
+  }
+
+  /** Object and String parameters take almost anything, overloads with them are tried last */
+  private static int looseness(Class<?> raw) {
+    if (Object.class.equals(raw) || JsonNode.class.isAssignableFrom(raw)) return 2;
+    if (String.class.equals(raw)) return 1;
+    return 0;
+  }
+
+  public Object bind(int index, JsonNode node) throws IOException {
+    return parameterReaders[index].readValue(Objects.isNull(node) ? NullNode.getInstance() : node);
+  }
+
+  /** Read the value at the current token of the parser straight into the parameter type, no tree in between */
+  public Object bind(int index, JsonParser parser) throws IOException {
+    return parameterReaders[index].readValue(parser);
+  }
+
+  /** Exceptions thrown by the service are wrapped like {@link Method#invoke}, the controller reports the cause */
+  public Object invoke(Object[] args) throws InvocationTargetException {
+    try {
+      return (Object) handle.invokeExact(args);
+    } catch (Throwable ex) {
+      throw new InvocationTargetException(ex);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return component + "." + service + "(" + getArity() + ")";
+  }
+}
@@ -0,0 +1,97 @@
+package net.binhnguyen.module.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.lib.utils.DataSerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.BaseStream;
+
+/**
+ * @author Bình Nguyễn
+ * @Email jackjack2000.kahp@gmail.com
+ * @Usage Results that a service produces lazily: a `Stream`, an `Iterator` or an `Iterable` that is not a `Collection`. <br/>
+ *        They are written element by element, as NDJSON ({@link #writeNdjson}) or as a JSON array ({@link #writeArray}),
+ *        and closed (`Stream.onClose`, `AutoCloseable`) once written, when the client disconnects or when an element fails,
+ *        so a cursor behind the stream is released. The blocking writes to the response are the backpressure:
+ *        the next element is only pulled once the previous one is handed to the socket buffer.
+ */
+@Slf4j
+public class RPCResults {
+
+  public static boolean isStreamed(Object result) {
+    if (result instanceof BaseStream<?, ?> || result instanceof Iterator<?>) return true;
+    return result instanceof Iterable<?> && !(result instanceof Collection<?>);
+  }
+
+  public static Iterator<?> iterator(Object result) {
+    if (result instanceof BaseStream<?, ?> stream) return stream.iterator();
+    if (result instanceof Iterator<?> iterator) return iterator;
+    return ((Iterable<?>) result).iterator();
+  }
+
+  /** Read every element into a list, then close the result. For responses written after the call ended, e.g. a batch */
+  public static List<Object> toList(Object result) {
+    List<Object> elements = new ArrayList<>();
+    try {
+      Iterator<?> iterator = iterator(result);
+      while (iterator.hasNext()) {
+        elements.add(iterator.next());
+      }
+    } finally {
+      close(result);
+    }
+    return elements;
+  }
+
+  /** One compact JSON value per line */
+  public static long writeNdjson(Object result, OutputStream out) throws IOException {
+    long count = 0;
+    try (JsonGenerator generator = DataSerializer.JSON.createGenerator(out)) {
+      generator.setRootValueSeparator(new SerializedString("\n"));
+      Iterator<?> iterator = iterator(result);
+      while (iterator.hasNext()) {
+        DataSerializer.JSON.writeValue(generator, iterator.next());
+        count++;
+      }
+      if (count > 0) generator.writeRaw('\n');
+    } finally {
+      close(result);
+    }
+    return count;
+  }
+
+  /** A JSON array into an open generator, e.g. the body of a {@link net.binhnguyen.module.http.dto.ServerResponse} */
+  public static long writeArray(Object result, JsonGenerator generator) throws IOException {
+    long count = 0;
+    try {
+      generator.writeStartArray();
+      Iterator<?> iterator = iterator(result);
+      while (iterator.hasNext()) {
+        DataSerializer.JSON.writeValue(generator, iterator.next());
+        count++;
+      }
+      generator.writeEndArray();
+    } finally {
+      close(result);
+    }
+    return count;
+  }
+
+  public static void close(Object result) {
+    if (!(result instanceof AutoCloseable closeable)) return;
+    try {
+      closeable.close();
+    } catch (Exception ex) {
+      log.warn("Error closing streamed RPC result {}", result.getClass().getName(), ex);
+    }
+  }
+
+  private RPCResults() {}
+}
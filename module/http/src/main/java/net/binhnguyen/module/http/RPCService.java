@@ -1,70 +1,184 @@
 package net.binhnguyen.module.http;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import lombok.extern.slf4j.Slf4j;
 import net.binhnguyen.lib.utils.DataSerializer;
 import net.binhnguyen.module.http.dto.RPCRequest;
-import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
-import org.springframework.util.Assert;
 
-import java.beans.BeanInfo;
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.MethodDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Parameter;
-import java.lang.reflect.ParameterizedType;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Service
 public class RPCService {
 
   @Autowired
-  private ApplicationContext applicationContext;
-
-  public Object processRequest(RPCRequest request, List<Object> argumentsHolder) throws IllegalAccessException, InvocationTargetException, IntrospectionException {
-    final String service = request.getService();
-    final String component = request.getComponent();
-
-    Object springComponent = applicationContext.getBean(request.getComponent());
-    Class<?> springComponentType = AopUtils.getTargetClass(springComponent);
-    BeanInfo beanInfo = Introspector.getBeanInfo(springComponentType);
-    MethodDescriptor[] methods = beanInfo.getMethodDescriptors();
-    MethodDescriptor methodDescriptor = null;
-    for (MethodDescriptor method : methods) {
-      if (method.getMethod().getName().equals(request.getService())) {
-        methodDescriptor = method;
+  private RPCDispatchRegistry dispatchRegistry;
+
+  public Object processRequest(RPCRequest request, List<Object> argumentsHolder) throws IOException, InvocationTargetException {
+    final Map<String, JsonNode> params = request.getParameters();
+    final List<JsonNode> values = Objects.isNull(params) ? List.of() : new ArrayList<>(params.values());
+    final List<JsonToken> shapes = new ArrayList<>(values.size());
+    for (JsonNode value : values) {
+      shapes.add(Objects.isNull(value) ? JsonToken.VALUE_NULL : value.asToken());
+    }
+    RPCMethod method = dispatchRegistry.resolve(request.getComponent(), request.getService(), argumentsHolder, shapes);
+
+    int argumentIdx = argumentsHolder.size();
+    for (JsonNode jsonNode : values) {
+      argumentsHolder.add(method.bind(argumentIdx, jsonNode));
+      argumentIdx++;
+    }
+
+    Object[] args = argumentsHolder.toArray();
+    return method.invoke(args);
+  }
+
+  /**
+   * Same as {@link #processRequest(RPCRequest, List)} but the request body is read with a streaming parser,
+   * the parameters are never held as a JsonNode tree.
+   * @param call Filled while the body is read, the caller can report component and service on failure
+   */
+  public Object processRequest(InputStream body, RPCCall call) throws IOException, InvocationTargetException {
+    try (JsonParser parser = DataSerializer.JSON.createParser(body)) {
+      readCall(parser, new ArrayList<>(), call);
+    }
+    return call.invoke();
+  }
+
+  /** Same as {@link #processRequest(InputStream, RPCCall)} for a request already copied out of a batch, see {@link #readBatch} */
+  public Object processRequest(TokenBuffer request, RPCCall call) throws IOException, InvocationTargetException {
+    try (JsonParser parser = request.asParser()) {
+      readCall(parser, new ArrayList<>(), call);
+    }
+    return call.invoke();
+  }
+
+  /**
+   * Split a batch body `[ request, request, ... ]` into one token buffer per request, so a request that fails to bind
+   * does not leave the parser in the middle of the array and only fails its own call.
+   * @param maxSize Upper bound of the batch, checked while reading
+   */
+  public List<TokenBuffer> readBatch(InputStream body, int maxSize) throws IOException {
+    try (JsonParser parser = DataSerializer.JSON.createParser(body)) {
+      if (!JsonToken.START_ARRAY.equals(parser.nextToken())) {
+        throw new IllegalArgumentException("Expect an array of RPC requests, got " + parser.currentToken());
+      }
+      List<TokenBuffer> requests = new ArrayList<>();
+      while (JsonToken.START_OBJECT.equals(parser.nextToken())) {
+        if (requests.size() >= maxSize) {
+          throw new IllegalArgumentException("An RPC batch takes at most " + maxSize + " requests");
+        }
+        requests.add(copyValue(parser));
       }
+      if (!JsonToken.END_ARRAY.equals(parser.currentToken())) {
+        throw new IllegalArgumentException("Expect an RPC request object, got " + parser.currentToken());
+      }
+      return requests;
     }
+  }
 
-    final String nullMethodDescriptorMessage = MessageFormat.format("No method `{0}` in class {1}", service, component);
-    Assert.notNull(methodDescriptor, nullMethodDescriptorMessage);
-    Parameter[] methodArguments = methodDescriptor.getMethod().getParameters();
+  /**
+   * Read one request object `{ version, component, service, parameters }` from the parser and bind its parameters. <br/>
+   * When component and service come before the parameters (the UI sends them in that order) and the service has a single overload,
+   * every parameter is read straight from the parser into its declared generic type. Otherwise each parameter is buffered as tokens
+   * (far smaller than a tree) until the overload is resolved by arity and JSON shape.
+   * @param argumentsHolder Arguments given by the server, they come before the request parameters
+   */
+  public RPCCall readCall(JsonParser parser, List<Object> argumentsHolder, RPCCall call) throws IOException {
+    if (!parser.hasCurrentToken()) parser.nextToken();
+    if (!JsonToken.START_OBJECT.equals(parser.currentToken())) {
+      throw new IllegalArgumentException("Expect an RPC request object, got " + parser.currentToken());
+    }
 
-    final Map<String, JsonNode> params = request.getParameters();
-    int argumentIdx = argumentsHolder.size();
-    for (JsonNode jsonNode : params.values()) {
-      Class<?> argType = methodArguments[argumentIdx].getType();
-      if (List.class.isAssignableFrom(argType)) {
-        ParameterizedType pType = (ParameterizedType) methodArguments[argumentIdx].getParameterizedType();
-        Class<?> actualType = (Class<?>) pType.getActualTypeArguments()[0];
-        List<?> values = DataSerializer.JSON.convertTreeToListObject(jsonNode, actualType);
-        argumentsHolder.add(values);
-      } else {
-        Object value = DataSerializer.JSON.convertTreeToObject(jsonNode, argType);
-        argumentsHolder.add(value);
+    List<TokenBuffer> buffered = List.of();
+    while (JsonToken.FIELD_NAME.equals(parser.nextToken())) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "version"    -> call.setVersion(parser.getValueAsString());
+        case "component"  -> call.setComponent(parser.getValueAsString());
+        case "service"    -> call.setService(parser.getValueAsString());
+        case "parameters" -> buffered = readParameters(parser, argumentsHolder, call);
+        default           -> parser.skipChildren();
       }
+    }
+    if (Objects.isNull(call.getComponent()) || Objects.isNull(call.getService())) {
+      throw new IllegalArgumentException("An RPC request needs a component and a service");
+    }
 
-      argumentIdx++;
+    RPCMethod method = call.getMethod();
+    if (Objects.isNull(method)) {
+      List<JsonToken> shapes = new ArrayList<>(buffered.size());
+      for (TokenBuffer buffer : buffered) {
+        shapes.add(buffer.firstToken());
+      }
+      method = dispatchRegistry.resolve(call.getComponent(), call.getService(), argumentsHolder, shapes);
+      for (TokenBuffer buffer : buffered) {
+        try (JsonParser bufferParser = buffer.asParser(parser.getCodec())) {
+          argumentsHolder.add(method.bind(argumentsHolder.size(), bufferParser));
+        }
+      }
+      call.setMethod(method);
     }
+    if (argumentsHolder.size() != method.getArity()) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "`{0}` in class {1} takes {2} parameters, got {3}", call.getService(), call.getComponent(), method.getArity(), argumentsHolder.size()
+      ));
+    }
+    call.setArguments(argumentsHolder.toArray());
+    return call;
+  }
 
-    Object[] args = argumentsHolder.toArray();
-    return methodDescriptor.getMethod().invoke(springComponent, args);
+  /** @return The buffered parameters, empty when they were bound straight away */
+  private List<TokenBuffer> readParameters(JsonParser parser, List<Object> argumentsHolder, RPCCall call) throws IOException {
+    if (JsonToken.VALUE_NULL.equals(parser.currentToken())) return List.of();
+    if (!JsonToken.START_OBJECT.equals(parser.currentToken())) {
+      throw new IllegalArgumentException("RPC parameters must be an object, got " + parser.currentToken());
+    }
+
+    if (Objects.nonNull(call.getComponent()) && Objects.nonNull(call.getService())) {
+      List<RPCMethod> overloads = dispatchRegistry.getOverloads(call.getComponent(), call.getService());
+      if (overloads.size() == 1) {
+        RPCMethod method = overloads.getFirst();
+        while (JsonToken.FIELD_NAME.equals(parser.nextToken())) {
+          parser.nextToken();
+          int argumentIdx = argumentsHolder.size();
+          if (argumentIdx >= method.getArity()) {
+            throw new IllegalArgumentException(MessageFormat.format(
+              "`{0}` in class {1} takes {2} parameters", call.getService(), call.getComponent(), method.getArity()
+            ));
+          }
+          argumentsHolder.add(method.bind(argumentIdx, parser));
+        }
+        call.setMethod(method);
+        return List.of();
+      }
+    }
+
+    List<TokenBuffer> buffered = new ArrayList<>();
+    while (JsonToken.FIELD_NAME.equals(parser.nextToken())) {
+      parser.nextToken();
+      buffered.add(copyValue(parser));
+    }
+    return buffered;
+  }
+
+  /** Copy the value at the current token, the parser is left on its last token */
+  private static TokenBuffer copyValue(JsonParser parser) throws IOException {
+    TokenBuffer buffer = new TokenBuffer(parser);
+    buffer.copyCurrentStructure(parser);
+    return buffer;
   }
-}
\ No newline at end of file
+}
@@ -13,16 +13,25 @@ import java.util.concurrent.Callable;
 abstract public class BaseController {
 
   public <T> ServerResponse execute(String component, String service, Callable<T> executor) {
-    ServerResponse response = new ServerResponse(component, service);
+    return execute(new ServerResponse(component, service), executor);
+  }
+
+  /** @param response The envelope, the executor may still set its component and service (e.g. read from a streamed body) */
+  public <T> ServerResponse execute(ServerResponse response, Callable<T> executor) {
     try {
       T result = executor.call();
+      response.setBody(result);
+      response.bufferBody();
+      final String component = response.getComponent();
+      final String service = response.getService();
       response.setFinishTimestamp(System.currentTimeMillis());
       log.info("Execute {}:{} successfully", component, service);
       response.setStatus(ServerResponse.Status.OK);
       response.setMessage(MessageFormat.format("Execute {0}:{1} successfully", component, service));
-      response.setBody(result);
       return response;
     } catch (Exception ex) {
+      final String component = response.getComponent();
+      final String service = response.getService();
       log.error("Error executing {}:{}", component, service, ex);
       response.setStatus(ServerResponse.Status.ERROR);
       response.setMessage(MessageFormat.format("Error executing {0}:{1}", component, service));
@@ -35,4 +44,4 @@ abstract public class BaseController {
       return response;
     }
   }
-}
\ No newline at end of file
+}
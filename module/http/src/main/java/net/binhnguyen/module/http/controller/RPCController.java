@@ -1,36 +1,182 @@
 package net.binhnguyen.module.http.controller;
 
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.extern.slf4j.Slf4j;
+import net.binhnguyen.module.http.RPCCall;
+import net.binhnguyen.module.http.RPCResults;
 import net.binhnguyen.module.http.RPCService;
-import net.binhnguyen.module.http.dto.RPCRequest;
 import net.binhnguyen.module.http.dto.ServerResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.Objects;
+import java.util.concurrent.*;
 
 /**
  * @author Bình Nguyễn
  * @Email jackjack2000.kahp@gmail.com
  * @RPC Stands for Remote Procedure Call. It's a protocol
- * @Usage Use for private api cases
+ * @Usage Use for private api cases. <br/>
+ *        The body of `/rpc/call` is read with a streaming parser, each parameter is bound straight into
+ *        the declared type of the service method (see {@link RPCService#readCall}). <br/>
+ *        `/rpc/batch` takes an array of requests and returns one {@link ServerResponse} per request, in order.
+ *        The calls are independent: they run concurrently on virtual threads (at most `rpc.batch.parallelism` at once),
+ *        each on its own thread (never in a shared transaction), and a failed call does not stop the others.
+ *        A streamed result is read into a list within its call, use `/rpc/call` for large exports.
+ *        With `?sequential=true` they run one after another, in order. <br/>
+ *        A service may return a `Stream`, an `Iterator` or an `Iterable` to export rows in constant memory (see {@link RPCResults}).
+ *        With `Accept: application/x-ndjson` `/rpc/call` answers with one JSON line per element, otherwise the elements are
+ *        written as the array body of the usual {@link ServerResponse}. Either way only the element being written is in memory,
+ *        and the result is closed once the request ends, whether it was written or not.
+ *        An element failing mid-stream aborts the response, the status line is already sent.
+ *        An NDJSON response must end within `rpc.stream.timeout-ms` (default 1 hour, -1 for none), past it the response
+ *        is aborted the same way. The timeout is set on that response only, other async handlers keep the MVC default.
  */
+@Slf4j
 @RestController
 @RequestMapping("/rpc")
 public class RPCController extends BaseController {
 
+  private static final String STREAMED_RESULT = RPCController.class.getName() + ".STREAMED_RESULT";
+
   @Autowired
   private RPCService service;
 
+  @Value("${rpc.batch.max-size:100}")
+  private int batchMaxSize;
+
+  @Value("${rpc.batch.parallelism:8}")
+  private int batchParallelism;
+
+  @Value("${rpc.stream.timeout-ms:3600000}")
+  private long streamTimeoutMillis;
+
   @PostMapping("/call")
-  public @ResponseBody ServerResponse call(@RequestBody RPCRequest request) {
+  public ResponseEntity<?> call(
+    InputStream body, @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept, WebRequest webRequest
+  ) {
+    final RPCCall call = new RPCCall();
+    ServerResponse response = executeCall(call, () -> service.processRequest(body, call));
+    final Object result = response.getBodyValue();
+    if (!ServerResponse.Status.OK.equals(response.getStatus()) || !RPCResults.isStreamed(result) || !acceptsNdjson(accept)) {
+      // Written by the message converter after this returns. If it never gets to it (e.g. 406) nothing else closes it
+      if (RPCResults.isStreamed(result)) {
+        webRequest.registerDestructionCallback(STREAMED_RESULT, () -> RPCResults.close(result), RequestAttributes.SCOPE_REQUEST);
+      }
+      return ResponseEntity.ok(response);
+    }
+
+    // Same as WebAsyncUtils.getAsyncManager(webRequest), whose overloads need the servlet API to compile
+    final WebAsyncManager asyncManager = (WebAsyncManager) webRequest.getAttribute(
+      WebAsyncUtils.WEB_ASYNC_MANAGER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST
+    );
+    asyncManager.getAsyncWebRequest().setTimeout(streamTimeoutMillis);
+    asyncManager.registerCallableInterceptor(STREAMED_RESULT, new StreamedResultInterceptor(result, streamTimeoutMillis));
+    StreamingResponseBody stream = out -> {
+      long count = RPCResults.writeNdjson(result, out);
+      log.debug("Streamed {} elements of {}:{}", count, response.getComponent(), response.getService());
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(stream);
+  }
+
+  @PostMapping("/batch")
+  public @ResponseBody List<ServerResponse> batch(
+    InputStream body, @RequestParam(name = "sequential", defaultValue = "false") boolean sequential
+  ) throws IOException, InterruptedException, ExecutionException {
+    List<TokenBuffer> requests = service.readBatch(body, batchMaxSize);
+    List<ServerResponse> responses = new ArrayList<>(requests.size());
+    if (sequential || requests.size() == 1) {
+      for (TokenBuffer request : requests) {
+        responses.add(call(request));
+      }
+      return responses;
+    }
+
+    Semaphore permits = new Semaphore(Math.max(1, batchParallelism));
+    List<Future<ServerResponse>> futures = new ArrayList<>(requests.size());
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (TokenBuffer request : requests) {
+        futures.add(executor.submit(() -> {
+          permits.acquire();
+          try {
+            return call(request);
+          } finally {
+            permits.release();
+          }
+        }));
+      }
+      for (Future<ServerResponse> future : futures) {
+        responses.add(future.get());
+      }
+    }
+    log.debug("Executed a batch of {} RPC calls", responses.size());
+    return responses;
+  }
+
+  private boolean acceptsNdjson(String accept) {
+    if (Objects.isNull(accept) || accept.isBlank()) return false;
+    for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+      if (mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Closes a streamed result when its async response ends, including when the write never started or timed out.
+   * Closing a result that was already written is a no-op.
+   */
+  private record StreamedResultInterceptor(Object result, long timeoutMillis) implements CallableProcessingInterceptor {
+
+    @Override
+    public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+      log.warn("Streamed RPC response exceeded rpc.stream.timeout-ms ({}ms), aborting it", timeoutMillis);
+      return RESULT_NONE;
+    }
+
+    @Override
+    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+      RPCResults.close(result);
+    }
+  }
+
+  /**
+   * A batch is written once every call ended, a streamed result (e.g. `DBConnectService.stream`) would hold its connection
+   * until then while the other calls wait for one. It is read into a list within its call instead.
+   */
+  private ServerResponse call(TokenBuffer request) {
+    final RPCCall call = new RPCCall();
+    return executeCall(call, () -> {
+      Object result = service.processRequest(request, call);
+      return RPCResults.isStreamed(result) ? RPCResults.toList(result) : result;
+    });
+  }
+
+  /** The component and service are only known once the request is read, the envelope takes them when the executor ends */
+  private ServerResponse executeCall(RPCCall call, Callable<Object> processor) {
+    final ServerResponse response = new ServerResponse("", "");
     Callable<Object> executor = () -> {
-      List<Object> argHolder = new ArrayList<>();
-      return service.processRequest(request, argHolder);
+      try {
+        return processor.call();
+      } finally {
+        if (Objects.nonNull(call.getComponent())) response.setComponent(call.getComponent());
+        if (Objects.nonNull(call.getService())) response.setService(call.getService());
+      }
     };
-    final String component = request.getComponent();
-    final String service = request.getService();
-    return execute(component, service, executor);
+    return execute(response, executor);
   }
-}
\ No newline at end of file
+}
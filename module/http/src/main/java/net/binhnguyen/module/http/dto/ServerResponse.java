@@ -1,11 +1,26 @@
 package net.binhnguyen.module.http.dto;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import net.binhnguyen.lib.utils.DataSerializer;
+import net.binhnguyen.module.http.RPCResults;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -19,12 +34,22 @@ import java.util.Objects;
  *          {@link #body} should be return JSON Object (A Employee record for example) <br/>
  *        else <br/>
  *          {@link #message} should announce 'Error' <br/>
- *          {@link #body} should be return Exception message
+ *          {@link #body} should be return Exception message <br/>
+ *        {@link #bufferBody()} serializes a small result to JSON bytes while the call can still report an error,
+ *        {@link BodySerializer} copies the bytes into the response as they are: one serialization pass, no JsonNode tree. <br/>
+ *        A result over {@link #BUFFER_MAX_ELEMENTS} elements or {@link #BUFFER_MAX_BYTES} bytes, or a streamed one
+ *        (see {@link RPCResults#isStreamed}), is written straight to the response instead. The status line is sent by then,
+ *        so a serialization error there is logged and cuts the response off. <br/>
+ *        {@link #getBody()} still gives the body as a tree, {@link #getBodyValue()} the result as set, {@link #getBodyAs(Class)} converts either.
  */
+@Slf4j
 @NoArgsConstructor @Getter @Setter
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class ServerResponse {
 
+  public static final int BUFFER_MAX_BYTES    = 256 * 1024;
+  public static final int BUFFER_MAX_ELEMENTS = 1000;
+
   private Status status;
   private String component;
   private String service;
@@ -34,7 +59,11 @@ public class ServerResponse {
   private long finishTimestamp;
   private long executionTimestamp;
 
-  private JsonNode body;
+  @JsonProperty("body")
+  @JsonSerialize(using = BodySerializer.class)
+  @JsonDeserialize(as = JsonNode.class)
+  @Getter(AccessLevel.NONE)
+  private Object body;
 
   public ServerResponse(String component, String service) {
     if (component.isEmpty()) this.component = "unknown";
@@ -52,22 +81,134 @@ public class ServerResponse {
 
   public enum Status { OK, ERROR, UNAUTHORIZED }
 
-  public <T> void setBody(T value) {
-    if (Objects.isNull(value)) {
-      body = null;
-    } else {
-      body = DataSerializer.JSON.convertObjectToTree(value);
+  /**
+   * Serialize a small body now, so a result that cannot be serialized (cycle, unsupported type) fails the call
+   * with an ERROR response instead of a truncated one. A large one is left for {@link BodySerializer}
+   */
+  public void bufferBody() throws IOException {
+    if (Objects.isNull(body) || body instanceof JsonNode || body instanceof BufferedBody) return;
+    if (RPCResults.isStreamed(body) || isLarge(body)) return;
+
+    BoundedBuffer out = new BoundedBuffer(BUFFER_MAX_BYTES);
+    try (JsonGenerator generator = DataSerializer.JSON.createGenerator(out)) {
+      DataSerializer.JSON.writeValue(generator, body);
+    } catch (IOException | RuntimeException ex) {
+      if (BoundedBuffer.isOverflow(ex)) return;
+      throw ex;
     }
+    body = new BufferedBody(out.toByteArray());
+  }
+
+  /** @return The body as a tree, like it always was. Null for a streamed result, see {@link #getBodyValue()} */
+  @JsonIgnore
+  public JsonNode getBody() {
+    return switch (body) {
+      case null -> null;
+      case JsonNode node -> node;
+      case BufferedBody buffered -> DataSerializer.JSON.fromString(buffered.toString(), JsonNode.class);
+      default -> RPCResults.isStreamed(body) ? null : DataSerializer.JSON.convertObjectToTree(body);
+    };
+  }
+
+  /** @return The body as set, a streamed result included, or its JSON once {@link #bufferBody()} serialized it */
+  @JsonIgnore
+  public Object getBodyValue() {
+    return body instanceof BufferedBody buffered ? getBody() : body;
   }
 
   @JsonIgnore
   public <T> T getBodyAs(Class<T> clazz) {
     if (Objects.isNull(body)) return null;
-    return DataSerializer.JSON.convertTreeToObject(this.body, clazz);
+    if (body instanceof JsonNode node) return DataSerializer.JSON.convertTreeToObject(node, clazz);
+    if (body instanceof BufferedBody buffered) return DataSerializer.JSON.fromString(buffered.toString(), clazz);
+    if (clazz.isInstance(body)) return clazz.cast(body);
+    return DataSerializer.JSON.convertValue(this.body, clazz);
+  }
+
+  private static boolean isLarge(Object value) {
+    return switch (value) {
+      case Collection<?> collection -> collection.size() > BUFFER_MAX_ELEMENTS;
+      case Map<?, ?> map -> map.size() > BUFFER_MAX_ELEMENTS;
+      case Object[] objects -> objects.length > BUFFER_MAX_ELEMENTS;
+      default -> false;
+    };
   }
 
   public void setFinishTimestamp(long finishTimestamp) {
     this.finishTimestamp = finishTimestamp;
     this.executionTimestamp = finishTimestamp - startTimestamp;
   }
-}
\ No newline at end of file
+
+  /**
+   * Writes the body with {@link DataSerializer#JSON} settings (date format, java.time), as the JsonNode body used to be built.
+   * A buffered body is copied as is, a streamed result (see {@link RPCResults#isStreamed}) is written as an array, element by element
+   */
+  public static class BodySerializer extends JsonSerializer<Object> {
+    @Override
+    public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+      if (value instanceof BufferedBody buffered) {
+        generator.writeRawValue(buffered.toString());
+        return;
+      }
+      try {
+        if (RPCResults.isStreamed(value)) RPCResults.writeArray(value, generator);
+        else DataSerializer.JSON.writeValue(generator, value);
+      } catch (IOException | RuntimeException ex) {
+        log.error("Response body ({}) failed while it was written, the response is cut off", value.getClass().getName(), ex);
+        throw ex;
+      }
+    }
+  }
+
+  /** JSON of a body serialized by {@link #bufferBody()} */
+  private static final class BufferedBody {
+    private final byte[] json;
+
+    private BufferedBody(byte[] json) {
+      this.json = json;
+    }
+
+    @Override
+    public String toString() {
+      return new String(json, StandardCharsets.UTF_8);
+    }
+  }
+
+  /** Refuses to grow past its limit, the body is then written straight to the response */
+  private static final class BoundedBuffer extends ByteArrayOutputStream {
+    private final int limit;
+
+    private BoundedBuffer(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(1);
+      super.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      ensureCapacity(length);
+      super.write(bytes, offset, length);
+    }
+
+    private void ensureCapacity(int length) {
+      if (count + length > limit) throw new Overflow();
+    }
+
+    private static boolean isOverflow(Throwable error) {
+      for (Throwable cause = error; Objects.nonNull(cause); cause = cause.getCause()) {
+        if (cause instanceof Overflow) return true;
+      }
+      return false;
+    }
+
+    private static final class Overflow extends RuntimeException {
+      private Overflow() {
+        super("Body over " + BUFFER_MAX_BYTES + " bytes", null, false, false);
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package net.binhnguyen.module.http.test;
+
+import com.fasterxml.jackson.core.JsonToken;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.module.http.RPCDispatchRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+public class RPCDispatchRegistryUnitTest {
+
+  public enum Kind { EMPLOYEE, CONTRACTOR }
+
+  @Service("OverloadService")
+  public static class OverloadService {
+    public String find(Long id) { return "id:" + id; }
+    public String find(String code) { return "code:" + code; }
+    public String find(List<Long> ids) { return "ids:" + ids; }
+    public String find(Record filter) { return "filter:" + filter.get("code"); }
+    public String find(Kind kind, int limit) { return "kind:" + kind + ":" + limit; }
+    public String find(Object any, String label) { return "any:" + any + ":" + label; }
+
+    public String page(Long index) { return "page:" + index; }
+    public String page(List<Long> indexes) { return "pages:" + indexes; }
+
+    public long sum(List<Long> values) { return values.stream().mapToLong(Long::longValue).sum(); }
+
+    public String withContext(StringBuilder context, String name) { return context + ":" + name; }
+  }
+
+  @Component("LazyComponent")
+  public static class LazyComponent {
+    public String ping() { return "pong"; }
+  }
+
+  private static AnnotationConfigApplicationContext context;
+  private static RPCDispatchRegistry registry;
+
+  @BeforeAll
+  public static void setUp() {
+    context = new AnnotationConfigApplicationContext(RPCDispatchRegistry.class, OverloadService.class, LazyComponent.class);
+    registry = context.getBean(RPCDispatchRegistry.class);
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    context.close();
+  }
+
+  @Test
+  @Tag("unit")
+  public void testResolveByShape() throws InvocationTargetException {
+    Assertions.assertEquals("id:12", invoke(List.of(), JsonToken.VALUE_NUMBER_INT, 12L));
+    Assertions.assertEquals("code:E01", invoke(List.of(), JsonToken.VALUE_STRING, "E01"));
+    Assertions.assertEquals("ids:[1, 2]", invoke(List.of(), JsonToken.START_ARRAY, List.of(1L, 2L)));
+    Assertions.assertEquals("filter:E01", invoke(List.of(), JsonToken.START_OBJECT, new Record("code", "E01")));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testResolveSpecificFirst() {
+    List<JsonToken> textAndNumber = List.of(JsonToken.VALUE_STRING, JsonToken.VALUE_NUMBER_INT);
+    Assertions.assertEquals(Kind.class, registry.resolve("OverloadService", "find", List.of(), textAndNumber).getMethod().getParameterTypes()[0]);
+
+    List<JsonToken> textAndText = List.of(JsonToken.VALUE_STRING, JsonToken.VALUE_STRING);
+    Assertions.assertEquals(Object.class, registry.resolve("OverloadService", "find", List.of(), textAndText).getMethod().getParameterTypes()[0]);
+  }
+
+  @Test
+  @Tag("unit")
+  public void testTextFallsBackToNumber() {
+    Assertions.assertEquals(String.class, registry.resolve("OverloadService", "find", List.of(), List.of(JsonToken.VALUE_STRING)).getMethod().getParameterTypes()[0]);
+    Assertions.assertEquals(Long.class, registry.resolve("OverloadService", "page", List.of(), List.of(JsonToken.VALUE_STRING)).getMethod().getParameterTypes()[0]);
+  }
+
+  @Test
+  @Tag("unit")
+  public void testResolveErrors() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> registry.getOverloads("OverloadService", "missing"));
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> registry.resolve("OverloadService", "find", List.of(), List.of(JsonToken.VALUE_TRUE, JsonToken.VALUE_TRUE, JsonToken.VALUE_TRUE))
+    );
+  }
+
+  @Test
+  @Tag("unit")
+  public void testComponentIndexedOnFirstCall() throws InvocationTargetException {
+    Assertions.assertEquals("pong", registry.resolve("LazyComponent", "ping", List.of(), List.of()).invoke(new Object[0]));
+  }
+
+  private static Object invoke(List<Object> presetArgs, JsonToken token, Object arg) throws InvocationTargetException {
+    return registry.resolve("OverloadService", "find", presetArgs, List.of(token)).invoke(new Object[] { arg });
+  }
+}
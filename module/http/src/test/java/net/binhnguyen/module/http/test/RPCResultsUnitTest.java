@@ -0,0 +1,129 @@
+package net.binhnguyen.module.http.test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.binhnguyen.lib.utils.DataSerializer;
+import net.binhnguyen.module.http.RPCResults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+public class RPCResultsUnitTest {
+
+  @Test
+  @Tag("unit")
+  public void testIsStreamed() {
+    Assertions.assertTrue(RPCResults.isStreamed(Stream.of(1)));
+    Assertions.assertTrue(RPCResults.isStreamed(List.of(1).iterator()));
+    Iterable<Integer> iterable = () -> List.of(1).iterator();
+    Assertions.assertTrue(RPCResults.isStreamed(iterable));
+    Assertions.assertFalse(RPCResults.isStreamed(List.of(1)));
+    Assertions.assertFalse(RPCResults.isStreamed(Set.of(1)));
+    Assertions.assertFalse(RPCResults.isStreamed("text"));
+    Assertions.assertFalse(RPCResults.isStreamed(null));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testWriteNdjson() throws IOException {
+    AtomicBoolean closed = new AtomicBoolean();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long count = RPCResults.writeNdjson(Stream.of(List.of(1, 2), "a", 3).onClose(() -> closed.set(true)), out);
+    Assertions.assertEquals(3, count);
+    Assertions.assertEquals("[1,2]\n\"a\"\n3\n", out.toString(StandardCharsets.UTF_8));
+    Assertions.assertTrue(closed.get());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testCloseOnElementFailure() {
+    AtomicBoolean ndjsonClosed = new AtomicBoolean();
+    Stream<Integer> ndjson = failingStream().onClose(() -> ndjsonClosed.set(true));
+    Assertions.assertThrows(IllegalStateException.class, () -> RPCResults.writeNdjson(ndjson, new ByteArrayOutputStream()));
+    Assertions.assertTrue(ndjsonClosed.get());
+
+    AtomicBoolean arrayClosed = new AtomicBoolean();
+    Stream<Integer> array = failingStream().onClose(() -> arrayClosed.set(true));
+    Assertions.assertThrows(IllegalStateException.class, () -> {
+      try (JsonGenerator generator = DataSerializer.JSON.createGenerator(new ByteArrayOutputStream())) {
+        RPCResults.writeArray(array, generator);
+      }
+    });
+    Assertions.assertTrue(arrayClosed.get());
+
+    AtomicBoolean listClosed = new AtomicBoolean();
+    Stream<Integer> list = failingStream().onClose(() -> listClosed.set(true));
+    Assertions.assertThrows(IllegalStateException.class, () -> RPCResults.toList(list));
+    Assertions.assertTrue(listClosed.get());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testCloseOnClientDisconnect() {
+    AtomicBoolean closed = new AtomicBoolean();
+    ClosingIterator iterator = new ClosingIterator(closed);
+    OutputStream disconnected = new OutputStream() {
+      @Override
+      public void write(int value) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+    Assertions.assertThrows(IOException.class, () -> RPCResults.writeNdjson(iterator, disconnected));
+    Assertions.assertTrue(closed.get());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testToList() {
+    AtomicBoolean closed = new AtomicBoolean();
+    List<Object> elements = RPCResults.toList(new ClosingIterator(closed));
+    Assertions.assertEquals(5000, elements.size());
+    Assertions.assertTrue(closed.get());
+  }
+
+  private static Stream<Integer> failingStream() {
+    return Stream.of(1, 2, 3).map(value -> {
+      if (value == 2) throw new IllegalStateException("Element " + value + " failed");
+      return value;
+    });
+  }
+
+  /** 5000 elements, enough to overflow the generator buffer */
+  private static class ClosingIterator implements Iterator<String>, AutoCloseable {
+    private final AtomicBoolean closed;
+    private int next;
+
+    private ClosingIterator(AtomicBoolean closed) {
+      this.closed = closed;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < 5000;
+    }
+
+    @Override
+    public String next() {
+      return "row-" + next++;
+    }
+
+    @Override
+    public void close() {
+      closed.set(true);
+    }
+  }
+}
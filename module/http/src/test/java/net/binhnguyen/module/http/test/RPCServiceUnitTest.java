@@ -0,0 +1,96 @@
+package net.binhnguyen.module.http.test;
+
+import com.fasterxml.jackson.core.JsonParser;
+import net.binhnguyen.lib.utils.DataSerializer;
+import net.binhnguyen.module.http.RPCCall;
+import net.binhnguyen.module.http.RPCDispatchRegistry;
+import net.binhnguyen.module.http.RPCService;
+import net.binhnguyen.module.http.test.RPCDispatchRegistryUnitTest.OverloadService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RPCServiceUnitTest {
+
+  private static AnnotationConfigApplicationContext context;
+  private static RPCService rpcService;
+
+  @BeforeAll
+  public static void setUp() {
+    context = new AnnotationConfigApplicationContext(RPCDispatchRegistry.class, RPCService.class, OverloadService.class);
+    rpcService = context.getBean(RPCService.class);
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    context.close();
+  }
+
+  @Test
+  @Tag("unit")
+  public void testReadCallStreamsParameters() throws IOException, InvocationTargetException {
+    RPCCall call = readCall("{\"version\":\"1\",\"component\":\"OverloadService\",\"service\":\"sum\",\"parameters\":{\"values\":[1,2,3]}}", new ArrayList<>());
+    Assertions.assertEquals("1", call.getVersion());
+    Assertions.assertEquals(6L, call.invoke());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testReadCallParametersFirst() throws IOException, InvocationTargetException {
+    RPCCall call = readCall("{\"parameters\":{\"values\":[4,5]},\"service\":\"sum\",\"component\":\"OverloadService\"}", new ArrayList<>());
+    Assertions.assertEquals(9L, call.invoke());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testReadCallWithOverloads() throws IOException, InvocationTargetException {
+    Assertions.assertEquals("code:E01", readCall(request("find", "{\"code\":\"E01\"}"), new ArrayList<>()).invoke());
+    Assertions.assertEquals("id:7", readCall(request("find", "{\"id\":7}"), new ArrayList<>()).invoke());
+    Assertions.assertEquals("kind:CONTRACTOR:5", readCall(request("find", "{\"kind\":\"CONTRACTOR\",\"limit\":5}"), new ArrayList<>()).invoke());
+    Assertions.assertEquals("filter:E02", readCall(request("find", "{\"filter\":{\"code\":\"E02\"}}"), new ArrayList<>()).invoke());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testReadCallWithPresetArguments() throws IOException, InvocationTargetException {
+    List<Object> presetArgs = new ArrayList<>(List.of(new StringBuilder("ctx")));
+    RPCCall call = readCall(request("withContext", "{\"name\":\"Binh\"}"), presetArgs);
+    Assertions.assertEquals("ctx:Binh", call.invoke());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testReadCallErrors() {
+    RPCCall call = new RPCCall();
+    Assertions.assertThrows(IllegalArgumentException.class, () -> readCall(request("sum", "{\"values\":[1],\"extra\":2}"), new ArrayList<>(), call));
+    Assertions.assertEquals("OverloadService", call.getComponent());
+    Assertions.assertEquals("sum", call.getService());
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> readCall("{\"service\":\"sum\"}", new ArrayList<>()));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> readCall("[]", new ArrayList<>()));
+  }
+
+  private static String request(String service, String parameters) {
+    return "{\"component\":\"OverloadService\",\"service\":\"" + service + "\",\"parameters\":" + parameters + "}";
+  }
+
+  private static RPCCall readCall(String json, List<Object> presetArgs) throws IOException {
+    return readCall(json, presetArgs, new RPCCall());
+  }
+
+  private static RPCCall readCall(String json, List<Object> presetArgs, RPCCall call) throws IOException {
+    try (JsonParser parser = DataSerializer.JSON.createParser(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+      return rpcService.readCall(parser, presetArgs, call);
+    }
+  }
+}
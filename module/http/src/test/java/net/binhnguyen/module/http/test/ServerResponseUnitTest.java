@@ -0,0 +1,115 @@
+package net.binhnguyen.module.http.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.binhnguyen.lib.common.Record;
+import net.binhnguyen.lib.utils.DataSerializer;
+import net.binhnguyen.module.http.controller.BaseController;
+import net.binhnguyen.module.http.dto.ServerResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class ServerResponseUnitTest {
+
+  /** Spring writes the envelope with its own mapper, the body still follows DataSerializer settings */
+  private final ObjectMapper springMapper = new ObjectMapper();
+  private final BaseController controller = new BaseController() {};
+
+  public static class Employee {
+    public String     code;
+    public Date       birthday;
+    public List<Long> teamIds;
+    public Employee   manager;
+  }
+
+  @Test
+  @Tag("unit")
+  public void testBodyRoundTrip() throws Exception {
+    Employee employee = new Employee();
+    employee.code = "E01";
+    employee.birthday = new Date(946_684_800_000L);
+    employee.teamIds = List.of(1L, 2L);
+
+    ServerResponse response = controller.execute("EmployeeService", "getEmployee", () -> employee);
+    Assertions.assertEquals(ServerResponse.Status.OK, response.getStatus());
+    Assertions.assertEquals("E01", response.getBodyAs(Employee.class).code);
+
+    String json = springMapper.writeValueAsString(response);
+    JsonNode expected = DataSerializer.JSON.convertObjectToTree(employee);
+    Assertions.assertEquals(expected.toString(), springMapper.readTree(json).get("body").toString(), "Same body as the JsonNode conversion it replaces");
+
+    ServerResponse received = DataSerializer.JSON.fromString(json, ServerResponse.class);
+    Assertions.assertInstanceOf(JsonNode.class, received.getBody());
+    Employee receivedEmployee = received.getBodyAs(Employee.class);
+    Assertions.assertEquals("E01", receivedEmployee.code);
+    Assertions.assertEquals(employee.birthday, receivedEmployee.birthday);
+    Assertions.assertEquals(List.of(1L, 2L), receivedEmployee.teamIds);
+    Assertions.assertEquals("E01", received.getBodyAs(Record.class).get("code"));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testScalarAndListBodies() throws Exception {
+    ServerResponse text = controller.execute("DummyService", "helloWorld", () -> "Welcome");
+    String json = springMapper.writeValueAsString(text);
+    Assertions.assertEquals("Welcome", springMapper.readTree(json).get("body").asText());
+    Assertions.assertEquals("Welcome", DataSerializer.JSON.fromString(json, ServerResponse.class).getBodyAs(String.class));
+
+    ServerResponse list = controller.execute("DummyService", "list", () -> List.of(new Record("id", 1)));
+    json = springMapper.writeValueAsString(list);
+    ServerResponse received = DataSerializer.JSON.fromString(json, ServerResponse.class);
+    Assertions.assertEquals(1, received.getBodyAs(Record[].class)[0].getAsInteger("id"));
+
+    ServerResponse empty = controller.execute("DummyService", "nothing", () -> null);
+    Assertions.assertNull(DataSerializer.JSON.fromString(springMapper.writeValueAsString(empty), ServerResponse.class).getBodyAs(Record.class));
+  }
+
+  @Test
+  @Tag("unit")
+  public void testLargeBodyIsWrittenDirectly() throws Exception {
+    List<Record> rows = new ArrayList<>();
+    for (int i = 0; i <= ServerResponse.BUFFER_MAX_ELEMENTS; i++) rows.add(new Record("id", i));
+    ServerResponse many = controller.execute("EmployeeService", "search", () -> rows);
+    Assertions.assertSame(rows, many.getBodyValue(), "Not buffered");
+
+    String text = "x".repeat(ServerResponse.BUFFER_MAX_BYTES);
+    ServerResponse large = controller.execute("EmployeeService", "export", () -> new Record("text", text));
+    Assertions.assertInstanceOf(Record.class, large.getBodyValue(), "Over the byte limit, not buffered");
+
+    ServerResponse small = controller.execute("EmployeeService", "get", () -> new Record("text", "x"));
+    Assertions.assertInstanceOf(JsonNode.class, small.getBodyValue(), "Buffered as JSON");
+
+    for (ServerResponse response : List.of(many, large, small)) {
+      JsonNode written = springMapper.readTree(springMapper.writeValueAsString(response));
+      Assertions.assertEquals(response.getBody().toString(), written.get("body").toString());
+    }
+    Assertions.assertEquals(1000, springMapper.readTree(springMapper.writeValueAsString(many)).get("body").get(1000).get("id").asInt());
+  }
+
+  @Test
+  @Tag("unit")
+  public void testUnserializableBodyIsAnErrorEnvelope() throws Exception {
+    Employee employee = new Employee();
+    employee.manager = employee;
+    Object failingGetter = new Object() {
+      public String getName() {
+        throw new IllegalStateException("Lazy property, no session");
+      }
+    };
+
+    for (Object result : List.of(employee, failingGetter)) {
+      ServerResponse response = controller.execute("EmployeeService", "getEmployee", () -> result);
+      Assertions.assertEquals(ServerResponse.Status.ERROR, response.getStatus());
+      Assertions.assertEquals("Error executing EmployeeService:getEmployee", response.getMessage());
+      Assertions.assertInstanceOf(String.class, response.getBodyValue());
+      // The envelope itself is written completely
+      JsonNode written = springMapper.readTree(springMapper.writeValueAsString(response));
+      Assertions.assertEquals("ERROR", written.get("status").asText());
+    }
+  }
+}
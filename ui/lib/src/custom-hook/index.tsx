@@ -1 +1,2 @@
-export * from "./useSearch";
\ No newline at end of file
+export * from "./useSearch";
+export * from "./useSearchPage";
\ No newline at end of file
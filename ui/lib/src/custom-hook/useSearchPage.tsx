@@ -0,0 +1,67 @@
+import React from "react";
+
+import { ServerResponse } from "server/Interface";
+import { rpc } from "server/RPC";
+
+import * as PopupManager from "../widget/popup/PopupManager";
+
+/**
+ * Mirrors SearchPageRequest on the server.
+ * @param filters column -> value. An array means IN, a string containing `%` means ILIKE
+ */
+export interface SearchPageRequest {
+  limit?: number;
+  sortField?: string;
+  descending?: boolean;
+  keyField?: string;
+  filters?: any;
+  continuationToken?: string;
+  withEstimatedTotal?: boolean;
+}
+
+interface useSearchPageProps {
+  component: string;
+  service?: string;
+  sqlArgs?: any;
+  pageRequest?: SearchPageRequest;
+  dependencies?: React.DependencyList;
+  updateData: React.Dispatch<React.SetStateAction<any[]>>;
+}
+
+/**
+ * Like useSearch, but the server returns one keyset page at a time.
+ * The first page is loaded on mount / when dependencies change, `loadMore` appends the next one.
+ */
+export function useSearchPage({ component, service = "searchPage", sqlArgs = {}, pageRequest = {}, dependencies = [], updateData }: useSearchPageProps) {
+  const [ continuationToken, setContinuationToken ] = React.useState<string | null>(null);
+  const [ estimatedTotal, setEstimatedTotal ] = React.useState<number | null>(null);
+
+  const failCB = (response: ServerResponse) => {
+    PopupManager.createDangerPopup(<div> {response.message} </div>, "Search Error");
+    return;
+  }
+
+  const fetchPage = (token: string | null, append: boolean) => {
+    const successCB = (response: ServerResponse) => {
+      const page = response.body;
+      const records = page.records as any[];
+      if (append) updateData((previous: any[]) => [ ...previous, ...records ]);
+      else updateData(records);
+      setContinuationToken(page.continuationToken ?? null);
+      if (page.estimatedTotal !== undefined && page.estimatedTotal !== null) setEstimatedTotal(page.estimatedTotal);
+      return;
+    };
+    const request: SearchPageRequest = { ...pageRequest, continuationToken: token ?? undefined };
+    rpc.call(component, service, { sqlArgs: sqlArgs, pageRequest: request }, successCB, failCB);
+  }
+
+  React.useEffect(() => {
+    fetchPage(null, false);
+  }, dependencies);
+
+  const loadMore = () => {
+    if (continuationToken) fetchPage(continuationToken, true);
+  }
+
+  return { loadMore, hasMore: continuationToken !== null, estimatedTotal };
+}
@@ -46,23 +46,27 @@ export abstract class Api {
   }
 
   doFetch(url: string, requestInit: RequestInit, successCB: CallBack, failCB?: CallBack) {
-    if (!failCB) failCB = (response: ServerResponse) => {
-      const errorContent = (<div> {response.message} </div>);
-      PopupManager.createDangerPopup(errorContent);
-    }
-
     fetch(url, requestInit)
     .then((response: Response) => {
       return response.json();
     }).then((serverResponse: ServerResponse) => {
-      if (serverResponse.status === ResponseStatus.OK) {
-        successCB(serverResponse);
-      } else {
-        if (failCB) failCB(serverResponse);
-      }
+      this.handleResponse(serverResponse, successCB, failCB);
     }).catch((error: Error) => {
       console.log(`Marci UI Lib Error: \n${error}`);
       alert("Ops! Something wrong with your request :)");
     });
   }
+
+  handleResponse(serverResponse: ServerResponse, successCB: CallBack, failCB?: CallBack) {
+    if (!failCB) failCB = (response: ServerResponse) => {
+      const errorContent = (<div> {response.message} </div>);
+      PopupManager.createDangerPopup(errorContent);
+    }
+
+    if (serverResponse.status === ResponseStatus.OK) {
+      successCB(serverResponse);
+    } else {
+      failCB(serverResponse);
+    }
+  }
 }
@@ -1,5 +1,5 @@
 import { Api } from "./Api";
-import { CallBack, HttpMethod } from "./Interface";
+import { CallBack, HttpMethod, ServerResponse } from "./Interface";
 
 type RPCRequest = {
   version: string,
@@ -8,6 +8,14 @@ type RPCRequest = {
   parameters: any
 }
 
+export type RPCBatchCall = {
+  component: string,
+  service: string,
+  params: any,
+  successCB: CallBack,
+  failCB?: CallBack
+}
+
 /**
  * Remote Procedure Call (RPC)
  */
@@ -24,6 +32,33 @@ export class RPC extends Api {
     const requestInit: RequestInit = this.initRequest(HttpMethod.POST, rpcRequest);
     this.doFetch(url, requestInit, successCB, failCB);
   }
+
+  /**
+   * Send many calls in one round trip, every call gets its own response and callbacks.
+   * @param sequential Run the calls one after another, in order. By default the server runs them concurrently
+   */
+  batch(calls: RPCBatchCall[], sequential?: boolean): void {
+    const url: string = this.initialUrl("rpc/batch", sequential ? { sequential: true } : undefined);
+    const rpcRequests: RPCRequest[] = calls.map((call: RPCBatchCall) => ({
+      version: '1.0',
+      component: call.component,
+      service: call.service,
+      parameters: call.params
+    }));
+    const requestInit: RequestInit = this.initRequest(HttpMethod.POST, rpcRequests);
+    fetch(url, requestInit)
+    .then((response: Response) => {
+      return response.json();
+    }).then((serverResponses: ServerResponse[]) => {
+      serverResponses.forEach((serverResponse: ServerResponse, idx: number) => {
+        const call: RPCBatchCall = calls[idx];
+        this.handleResponse(serverResponse, call.successCB, call.failCB);
+      });
+    }).catch((error: Error) => {
+      console.log(`Marci UI Lib Error: \n${error}`);
+      alert("Ops! Something wrong with your request :)");
+    });
+  }
 }
 
 const rpc = new RPC("http://localhost:7080");